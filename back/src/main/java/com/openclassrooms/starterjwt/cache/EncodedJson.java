@@ -0,0 +1,101 @@
+package com.openclassrooms.starterjwt.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * A response body serialized once, with its gzip variant compressed on first request.
+ * Unless the caller supplies one (such as an entity version), the strong ETag is a digest of the
+ * JSON bytes, so equal bodies always share a tag.
+ */
+public final class EncodedJson {
+    private final byte[] json;
+
+    private final String etag;
+
+    private volatile byte[] gzip;
+
+    public EncodedJson(byte[] json) {
+        this(json, digest(json));
+    }
+
+    public EncodedJson(byte[] json, String etag) {
+        this.json = json;
+        this.etag = etag;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public byte[] getGzip() {
+        byte[] compressed = gzip;
+        if (compressed == null) {
+            compressed = compress(json);
+            gzip = compressed;
+        }
+        return compressed;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public ResponseEntity<byte[]> toResponse(String acceptEncoding) {
+        return toResponse(acceptEncoding, null);
+    }
+
+    /**
+     * Builds a 200 carrying ETag and Last-Modified; Spring turns it into a 304 when the request's
+     * If-None-Match or If-Modified-Since already matches.
+     */
+    public ResponseEntity<byte[]> toResponse(String acceptEncoding, LocalDateTime lastModified) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (lastModified != null) {
+            builder.lastModified(lastModified.atZone(ZoneId.systemDefault()));
+        }
+
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            // The compressed bytes are a different representation and need their own strong tag
+            return builder.eTag("\"" + etag + "-gzip\"")
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(getGzip());
+        }
+
+        return builder.eTag("\"" + etag + "\"").body(json);
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
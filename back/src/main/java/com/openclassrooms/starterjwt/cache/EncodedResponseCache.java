@@ -0,0 +1,75 @@
+package com.openclassrooms.starterjwt.cache;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps serialized response bodies for the immutable snapshots served by the read endpoints.
+ * An entry is reused only while the caller hands in the very same source instance, so a rebuilt
+ * snapshot (or an uncached, freshly loaded one) is always encoded again. Bodies of a single
+ * versioned entity are keyed by that version instead, which also becomes their ETag.
+ */
+@Component
+public class EncodedResponseCache {
+    private final ObjectMapper objectMapper;
+
+    private final ExpiringLruCache<String, Entry> cache;
+
+    public EncodedResponseCache(ObjectMapper objectMapper,
+                                @Value("${oc.app.responseCacheSize:1000}") int maxSize,
+                                @Value("${oc.app.responseCacheTtlMs:600000}") long ttlMs) {
+        this.objectMapper = objectMapper;
+        this.cache = new ExpiringLruCache<>(maxSize, ttlMs);
+    }
+
+    public EncodedJson get(String key, Object source, Supplier<?> body) {
+        Entry entry = cache.get(key);
+        if (entry != null && entry.source == source) {
+            return entry.encoded;
+        }
+
+        EncodedJson encoded = new EncodedJson(serialize(body.get()));
+        cache.put(key, new Entry(source, encoded));
+
+        return encoded;
+    }
+
+    public EncodedJson getVersioned(String key, Long version, Supplier<?> body) {
+        if (version == null) {
+            return new EncodedJson(serialize(body.get()));
+        }
+
+        Entry entry = cache.get(key);
+        if (entry != null && version.equals(entry.source)) {
+            return entry.encoded;
+        }
+
+        EncodedJson encoded = new EncodedJson(serialize(body.get()), "v" + version);
+        cache.put(key, new Entry(version, encoded));
+
+        return encoded;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize response body", e);
+        }
+    }
+
+    private static final class Entry {
+        private final Object source;
+        private final EncodedJson encoded;
+
+        private Entry(Object source, EncodedJson encoded) {
+            this.source = source;
+            this.encoded = encoded;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.starterjwt.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Small in-process cache bounded both in size (least recently used entries are dropped first)
+ * and in time (entries expire {@code ttlMs} after being stored). A zero size or TTL disables it.
+ */
+public class ExpiringLruCache<K, V> {
+    private final int maxSize;
+    private final long ttlMs;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public ExpiringLruCache(int maxSize, long ttlMs) {
+        this(maxSize, ttlMs, System::currentTimeMillis);
+    }
+
+    ExpiringLruCache(int maxSize, long ttlMs, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ExpiringLruCache.this.maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlMs > 0;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        putUntil(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Stores the value until {@code expiresAtMs} or the regular TTL, whichever comes first.
+     */
+    public synchronized void putUntil(K key, V value, long expiresAtMs) {
+        if (isEnabled()) {
+            long now = clock.getAsLong();
+            entries.put(key, new Entry<>(value, Math.min(expiresAtMs, now + ttlMs)));
+        }
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void removeIf(Predicate<? super V> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.value));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,52 +1,113 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.openclassrooms.starterjwt.cache.EncodedResponseCache;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BulkRejectedException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionPatchRequest;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionBulkResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionPageResponse;
+import com.openclassrooms.starterjwt.payload.response.UserPageResponse;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionCatalogue;
+import com.openclassrooms.starterjwt.services.SessionCursor;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_BULK_SIZE = 1000;
+
     private final SessionMapper sessionMapper;
+    private final UserMapper userMapper;
     private final SessionService sessionService;
+    private final EncodedResponseCache responseCache;
+    private final Validator validator;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             UserMapper userMapper,
+                             EncodedResponseCache responseCache,
+                             Validator validator) {
         this.sessionMapper = sessionMapper;
+        this.userMapper = userMapper;
         this.sessionService = sessionService;
+        this.responseCache = responseCache;
+        this.validator = validator;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            SessionDto session = this.sessionService.getDtoById(Long.valueOf(id));
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return this.responseCache.getVersioned("session/" + session.getId(), session.getVersion(), () -> session)
+                    .toResponse(acceptEncoding, session.getUpdatedAt());
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        SessionCatalogue catalogue = this.sessionService.getCatalogue();
+        List<SessionDto> sessions = catalogue.getSessions();
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+        return this.responseCache.get("sessions", sessions, () -> sessions)
+                .toResponse(acceptEncoding, catalogue.getLastModified());
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<?> findPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "size", required = false) Integer size,
+                                      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                      @RequestParam(value = "teacherId", required = false) Long teacherId,
+                                      @AuthenticationPrincipal UserDetailsImpl principal) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        // One extra row tells us whether another page exists without a count query
+        List<Session> sessions = this.sessionService.findPage(SessionCursor.decode(cursor), from, to, teacherId, pageSize + 1);
+
+        String nextCursor = null;
+        if (sessions.size() > pageSize) {
+            sessions = sessions.subList(0, pageSize);
+            nextCursor = SessionCursor.of(sessions.get(pageSize - 1)).encode();
+        }
+
+        return ResponseEntity.ok().body(new SessionPageResponse(this.sessionMapper.toSummaryDto(sessions, principal.getId()), nextCursor));
     }
 
     @PostMapping()
@@ -59,10 +120,106 @@ public class SessionController {
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
+    /**
+     * Creates every session of the list in one transaction, or none of them when any item is rejected.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createAll(@RequestBody List<SessionDto> sessionDtos) {
+        if (sessionDtos.isEmpty() || sessionDtos.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Between 1 and " + MAX_BULK_SIZE + " sessions are accepted"));
+        }
+
+        List<SessionBulkResponse.ItemError> errors = validateAll(sessionDtos, false);
+
+        if (errors.isEmpty()) {
+            // Users and teachers of the whole list are resolved with one lookup each
+            List<Session> sessions = this.sessionMapper.toEntity(sessionDtos);
+            for (int i = 0; i < sessions.size(); i++) {
+                List<String> messages = new ArrayList<>();
+                if (sessions.get(i).getTeacher() == null) {
+                    messages.add("teacher_id unknown teacher " + sessionDtos.get(i).getTeacher_id());
+                }
+                // The mapper leaves unknown participants as null entries, in the order of the distinct requested ids
+                List<User> users = sessions.get(i).getUsers();
+                if (users != null && users.contains(null)) {
+                    List<Long> userIds = sessionDtos.get(i).getUsers().stream().distinct().collect(Collectors.toList());
+                    for (int j = 0; j < users.size(); j++) {
+                        if (users.get(j) == null) {
+                            messages.add("users unknown user " + userIds.get(j));
+                        }
+                    }
+                }
+                if (SessionService.isOverbooked(sessions.get(i))) {
+                    messages.add(SessionService.OVERBOOKED);
+                }
+                if (!messages.isEmpty()) {
+                    errors.add(new SessionBulkResponse.ItemError(i, messages));
+                }
+            }
+
+            if (errors.isEmpty()) {
+                List<Session> created = this.sessionService.createAll(sessions);
+
+                return ResponseEntity.ok().body(new SessionBulkResponse(this.sessionMapper.toDto(created), Collections.emptyList()));
+            }
+        }
+
+        return ResponseEntity.badRequest().body(new SessionBulkResponse(Collections.emptyList(), errors));
+    }
+
+    /**
+     * Updates every session of the list in one transaction, or none of them when any item is rejected.
+     * Each item carries the id of the session it replaces and, optionally, the version it was read at;
+     * participants are left untouched as with a single PUT.
+     */
+    @PutMapping("/bulk")
+    public ResponseEntity<?> updateAll(@RequestBody List<SessionDto> sessionDtos) {
+        if (sessionDtos.isEmpty() || sessionDtos.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Between 1 and " + MAX_BULK_SIZE + " sessions are accepted"));
+        }
+
+        List<SessionBulkResponse.ItemError> errors = validateAll(sessionDtos, true);
+
+        if (errors.isEmpty()) {
+            List<Session> sessions = this.sessionMapper.toDetails(sessionDtos);
+            for (int i = 0; i < sessions.size(); i++) {
+                if (sessions.get(i).getTeacher() == null) {
+                    errors.add(new SessionBulkResponse.ItemError(i,
+                            Collections.singletonList("teacher_id unknown teacher " + sessionDtos.get(i).getTeacher_id())));
+                }
+                sessions.get(i).setId(sessionDtos.get(i).getId());
+            }
+
+            if (errors.isEmpty()) {
+                try {
+                    List<Session> updated = this.sessionService.updateAll(sessions);
+
+                    return ResponseEntity.ok().body(new SessionBulkResponse(this.sessionMapper.toDto(updated), Collections.emptyList()));
+                } catch (BulkRejectedException e) {
+                    e.getReasons().forEach((index, reason) ->
+                            errors.add(new SessionBulkResponse.ItemError(index, Collections.singletonList(reason))));
+                }
+            }
+        }
+
+        return ResponseEntity.badRequest().body(new SessionBulkResponse(Collections.emptyList(), errors));
+    }
+
     @PutMapping("{id}")
     public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
         try {
-            Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toEntity(sessionDto));
+            Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toDetails(sessionDto));
+
+            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PatchMapping("{id}")
+    public ResponseEntity<?> patch(@PathVariable("id") String id, @Valid @RequestBody SessionPatchRequest request) {
+        try {
+            Session session = this.sessionService.patch(Long.parseLong(id), request);
 
             return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
         } catch (NumberFormatException e) {
@@ -107,4 +264,97 @@ public class SessionController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @GetMapping("{id}/participants")
+    public ResponseEntity<?> findParticipants(@PathVariable("id") String id,
+                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                              @RequestParam(value = "size", required = false) Integer size,
+                                              @AuthenticationPrincipal UserDetailsImpl principal) {
+        // The roster exposes who booked and their email, as private as the bookings of each user
+        if (!Boolean.TRUE.equals(principal.getAdmin())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long sessionId = Long.valueOf(id);
+            Long afterUserId = cursor == null || cursor.isEmpty() ? null : Long.valueOf(cursor);
+            int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+            List<User> participants = this.sessionService.findParticipants(sessionId, afterUserId, pageSize + 1);
+
+            // An empty first page is the only case where the session may not exist
+            if (participants.isEmpty() && afterUserId == null && this.sessionService.getById(sessionId) == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            String nextCursor = null;
+            if (participants.size() > pageSize) {
+                participants = participants.subList(0, pageSize);
+                nextCursor = String.valueOf(participants.get(pageSize - 1).getId());
+            }
+
+            return ResponseEntity.ok().body(new UserPageResponse(this.userMapper.toDto(participants), nextCursor));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("{id}/waitlist")
+    public ResponseEntity<?> findWaitlist(@PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok().body(this.sessionService.getWaitlist(Long.parseLong(id)));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("{id}/waitlist/{userId}")
+    public ResponseEntity<?> joinWaitlist(@PathVariable("id") String id, @PathVariable("userId") String userId) {
+        try {
+            this.sessionService.joinWaitlist(Long.parseLong(id), Long.parseLong(userId));
+
+            return ResponseEntity.ok().build();
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("{id}/waitlist/{userId}")
+    public ResponseEntity<?> leaveWaitlist(@PathVariable("id") String id, @PathVariable("userId") String userId) {
+        try {
+            this.sessionService.leaveWaitlist(Long.parseLong(id), Long.parseLong(userId));
+
+            return ResponseEntity.ok().build();
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Bean validation of each item; updates also need the id of the session, once per list
+    private List<SessionBulkResponse.ItemError> validateAll(List<SessionDto> sessionDtos, boolean update) {
+        List<SessionBulkResponse.ItemError> errors = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < sessionDtos.size(); i++) {
+            SessionDto sessionDto = sessionDtos.get(i);
+            if (sessionDto == null) {
+                errors.add(new SessionBulkResponse.ItemError(i, Collections.singletonList("session must not be null")));
+                continue;
+            }
+
+            List<String> messages = this.validator.validate(sessionDto).stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            if (update && sessionDto.getId() == null) {
+                messages.add("id must not be null");
+            } else if (update && !ids.add(sessionDto.getId())) {
+                messages.add("id appears more than once");
+            }
+            if (!messages.isEmpty()) {
+                Collections.sort(messages);
+                errors.add(new SessionBulkResponse.ItemError(i, messages));
+            }
+        }
+
+        return errors;
+    }
 }
@@ -1,11 +1,16 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.cache.EncodedResponseCache;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.services.TeacherService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -13,16 +18,20 @@ import java.util.List;
 public class TeacherController {
     private final TeacherMapper teacherMapper;
     private final TeacherService teacherService;
+    private final EncodedResponseCache responseCache;
 
 
     public TeacherController(TeacherService teacherService,
-                             TeacherMapper teacherMapper) {
+                             TeacherMapper teacherMapper,
+                             EncodedResponseCache responseCache) {
         this.teacherMapper = teacherMapper;
         this.teacherService = teacherService;
+        this.responseCache = responseCache;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
             Teacher teacher = this.teacherService.findById(Long.valueOf(id));
 
@@ -30,16 +39,24 @@ public class TeacherController {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.teacherMapper.toDto(teacher));
+            return this.responseCache.get("teacher/" + teacher.getId(), teacher, () -> this.teacherMapper.toDto(teacher))
+                    .toResponse(acceptEncoding, teacher.getUpdatedAt());
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
+    public ResponseEntity<?> findAll(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         List<Teacher> teachers = this.teacherService.findAll();
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+        LocalDateTime lastModified = teachers.stream()
+                .map(Teacher::getUpdatedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+
+        return this.responseCache.get("teachers", teachers, () -> this.teacherMapper.toDto(teachers))
+                .toResponse(acceptEncoding, lastModified);
     }
 }
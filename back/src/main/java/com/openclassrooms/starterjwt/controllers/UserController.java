@@ -1,14 +1,26 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.SessionPageResponse;
+import com.openclassrooms.starterjwt.repository.VersionStamp;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.ZoneId;
+import java.util.List;
 import java.util.Objects;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -17,18 +29,37 @@ import java.util.Objects;
 public class UserController {
     private final UserMapper userMapper;
     private final UserService userService;
+    private final SessionMapper sessionMapper;
+    private final SessionService sessionService;
 
 
     public UserController(UserService userService,
-                             UserMapper userMapper) {
+                             UserMapper userMapper,
+                             SessionService sessionService,
+                             SessionMapper sessionMapper) {
         this.userMapper = userMapper;
         this.userService = userService;
+        this.sessionService = sessionService;
+        this.sessionMapper = sessionMapper;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest webRequest) {
         try {
-            User user = this.userService.findById(Long.valueOf(id));
+            Long userId = Long.valueOf(id);
+            VersionStamp stamp = this.userService.findVersionStampById(userId);
+
+            if (stamp != null && stamp.getVersion() != null) {
+                long lastModified = stamp.getUpdatedAt() != null
+                        ? stamp.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                        : -1;
+                // Sets ETag and Last-Modified on the response; a null return then completes the 304
+                if (webRequest.checkNotModified("\"v" + stamp.getVersion() + "\"", lastModified)) {
+                    return null;
+                }
+            }
+
+            User user = this.userService.findById(userId);
 
             if (user == null) {
                 return ResponseEntity.notFound().build();
@@ -40,6 +71,66 @@ public class UserController {
         }
     }
 
+    @GetMapping("/{id}/sessions")
+    public ResponseEntity<?> findSessions(@PathVariable("id") String id,
+                                          @AuthenticationPrincipal UserDetailsImpl principal) {
+        try {
+            Long userId = Long.valueOf(id);
+
+            if (!canReadSessionsOf(principal, userId)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+
+            // Unpaged in name only: the list stops at the largest page, /sessions/page serves the rest
+            List<Session> sessions = this.sessionService.findUpcomingByParticipant(userId, null,
+                    PageRequest.of(0, SessionController.MAX_PAGE_SIZE));
+
+            // An empty result is the only case where the user may not exist
+            if (sessions.isEmpty() && !this.userService.existsById(userId)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok().body(this.sessionMapper.toSummaryDto(sessions, principal.getId()));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}/sessions/page")
+    public ResponseEntity<?> findSessionPage(@PathVariable("id") String id,
+                                             @RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "size", required = false) Integer size,
+                                             @AuthenticationPrincipal UserDetailsImpl principal) {
+        try {
+            Long userId = Long.valueOf(id);
+
+            if (!canReadSessionsOf(principal, userId)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+
+            int pageSize = size == null
+                    ? SessionController.DEFAULT_PAGE_SIZE
+                    : Math.min(Math.max(size, 1), SessionController.MAX_PAGE_SIZE);
+
+            List<Session> sessions = this.sessionService.findUpcomingByParticipant(userId, SessionCursor.decode(cursor),
+                    PageRequest.of(0, pageSize + 1));
+
+            if (sessions.isEmpty() && cursor == null && !this.userService.existsById(userId)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            String nextCursor = null;
+            if (sessions.size() > pageSize) {
+                sessions = sessions.subList(0, pageSize);
+                nextCursor = SessionCursor.of(sessions.get(pageSize - 1)).encode();
+            }
+
+            return ResponseEntity.ok().body(new SessionPageResponse(this.sessionMapper.toSummaryDto(sessions, principal.getId()), nextCursor));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("{id}")
     public ResponseEntity<?> save(@PathVariable("id") String id) {
         try {
@@ -61,4 +152,11 @@ public class UserController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    /**
+     * Bookings are private: only their owner and administrators may list them.
+     */
+    private static boolean canReadSessionsOf(UserDetailsImpl principal, Long userId) {
+        return Objects.equals(principal.getId(), userId) || Boolean.TRUE.equals(principal.getAdmin());
+    }
 }
@@ -0,0 +1,38 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * List view of a session: participants are summarised, the ids are only served by the detail endpoint.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionSummaryDto {
+    private Long id;
+
+    private String name;
+
+    private Date date;
+
+    private Long teacher_id;
+
+    private String description;
+
+    private Integer capacity;
+
+    private long participantCount;
+
+    private boolean currentUserParticipates;
+
+    private Long version;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
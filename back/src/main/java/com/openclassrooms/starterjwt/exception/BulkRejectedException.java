@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.exception;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Rejects a bulk write as a whole, with the reason each refused item was rejected keyed by its index.
+ */
+public class BulkRejectedException extends BadRequestException {
+    private final Map<Integer, String> reasons;
+
+    public BulkRejectedException(Map<Integer, String> reasons) {
+        super("Rejected items: " + reasons.keySet());
+        this.reasons = Collections.unmodifiableMap(reasons);
+    }
+
+    public Map<Integer, String> getReasons() {
+        return reasons;
+    }
+}
@@ -1,19 +1,33 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionSummaryDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.Hibernate;
+import org.mapstruct.Context;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,19 +38,208 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     TeacherService teacherService;
     @Autowired
     UserService userService;
+    @Autowired
+    SessionRepository sessionRepository;
+
+    @Override
+    public Session toEntity(SessionDto sessionDto) {
+        if (sessionDto == null) {
+            return null;
+        }
+
+        List<SessionDto> sessionDtos = Collections.singletonList(sessionDto);
+        Map<Long, User> usersById = resolveUsers(sessionDtos);
+
+        List<Long> unknownIds = Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream()
+                .filter(id -> !usersById.containsKey(id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!unknownIds.isEmpty()) {
+            throw new BadRequestException("Unknown user ids: " + unknownIds);
+        }
+
+        return toEntity(sessionDto, usersById, resolveTeachers(sessionDtos));
+    }
 
+    /**
+     * Maps a list of sessions with one lookup for all their users and one for all their teachers.
+     * Nothing is rejected here so that callers can report each item: unknown user ids are mapped to
+     * null participants, in the order of the distinct requested ids, and unknown teacher ids to a null teacher.
+     */
+    @Override
+    public List<Session> toEntity(List<SessionDto> sessionDtos) {
+        if (sessionDtos == null) {
+            return null;
+        }
+
+        Map<Long, User> usersById = resolveUsers(sessionDtos);
+        Map<Long, Teacher> teachersById = resolveTeachers(sessionDtos);
+
+        return sessionDtos.stream().map(sessionDto -> toEntity(sessionDto, usersById, teachersById)).collect(Collectors.toList());
+    }
+
+    // Only used to create sessions: the id and version are assigned on insert, whatever the client sent.
+    // A user listed twice is one participant, PARTICIPATE holds a single row per user and session
     @Mappings({
+            @Mapping(target = "id", ignore = true),
+            @Mapping(target = "version", ignore = true),
             @Mapping(source = "description", target = "description"),
-            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? teachersById.get(sessionDto.getTeacher_id()) : null)"),
+            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().distinct().map(usersById::get).collect(Collectors.toList()))"),
     })
-    public abstract Session toEntity(SessionDto sessionDto);
+    protected abstract Session toEntity(SessionDto sessionDto, @Context Map<Long, User> usersById, @Context Map<Long, Teacher> teachersById);
+
+    /**
+     * Maps the editable fields of a session and the version to check them against. Participants are
+     * neither mapped nor looked up: they are managed through the participate endpoints only.
+     */
+    public Session toDetails(SessionDto sessionDto) {
+        if (sessionDto == null) {
+            return null;
+        }
+
+        return toDetails(sessionDto, resolveTeachers(Collections.singletonList(sessionDto)));
+    }
+
+    /**
+     * Maps the editable fields of every session with one teacher lookup; unknown teacher ids are
+     * mapped to a null teacher.
+     */
+    public List<Session> toDetails(List<SessionDto> sessionDtos) {
+        if (sessionDtos == null) {
+            return null;
+        }
+
+        Map<Long, Teacher> teachersById = resolveTeachers(sessionDtos);
+
+        return sessionDtos.stream().map(sessionDto -> toDetails(sessionDto, teachersById)).collect(Collectors.toList());
+    }
+
+    @Mappings({
+            @Mapping(target = "id", ignore = true),
+            @Mapping(target = "users", ignore = true),
+            @Mapping(source = "description", target = "description"),
+            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? teachersById.get(sessionDto.getTeacher_id()) : null)"),
+    })
+    protected abstract Session toDetails(SessionDto sessionDto, @Context Map<Long, Teacher> teachersById);
+
+    @Override
+    public SessionDto toDto(Session session) {
+        if (session == null) {
+            return null;
+        }
+
+        return toDto(session, participantIds(Collections.singletonList(session)));
+    }
 
+    @Override
+    public List<SessionDto> toDto(List<Session> sessions) {
+        if (sessions == null) {
+            return null;
+        }
+
+        Map<Long, List<Long>> participants = participantIds(sessions);
+
+        return sessions.stream().map(session -> toDto(session, participants)).collect(Collectors.toList());
+    }
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(source = "session.teacher.id", target = "teacher_id"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
+            @Mapping(target = "users", expression = "java(participants.getOrDefault(session.getId(), Collections.emptyList()))"),
+    })
+    protected abstract SessionDto toDto(Session session, @Context Map<Long, List<Long>> participants);
+
+    /**
+     * Maps sessions to their list view. Counts and the current user's membership come from a single
+     * aggregate query on PARTICIPATE; participant ids are never loaded.
+     */
+    public List<SessionSummaryDto> toSummaryDto(List<Session> sessions, Long currentUserId) {
+        if (sessions == null) {
+            return null;
+        }
+
+        Map<Long, long[]> participation = new HashMap<>();
+        List<Long> ids = sessions.stream().filter(Objects::nonNull).map(Session::getId).collect(Collectors.toList());
+        if (!ids.isEmpty()) {
+            for (Object[] row : this.sessionRepository.findParticipation(ids, currentUserId)) {
+                participation.put(((Number) row[0]).longValue(),
+                        new long[] {((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+            }
+        }
+
+        return sessions.stream().map(session -> toSummaryDto(session, participation)).collect(Collectors.toList());
+    }
+
+    @Mappings({
+            @Mapping(source = "session.teacher.id", target = "teacher_id"),
+            @Mapping(target = "participantCount", expression = "java(participation.containsKey(session.getId()) ? participation.get(session.getId())[0] : 0L)"),
+            @Mapping(target = "currentUserParticipates", expression = "java(participation.containsKey(session.getId()) && participation.get(session.getId())[1] > 0)"),
     })
-    public abstract SessionDto toDto(Session session);
+    protected abstract SessionSummaryDto toSummaryDto(Session session, @Context Map<Long, long[]> participation);
+
+    /**
+     * Resolves participant ids without hydrating users: collections already in memory are read as-is,
+     * lazy ones are answered by a single id-only query on PARTICIPATE for the whole batch.
+     */
+    protected Map<Long, List<Long>> participantIds(List<Session> sessions) {
+        Map<Long, List<Long>> participants = new HashMap<>();
+        List<Long> unresolved = new ArrayList<>();
+
+        for (Session session : sessions) {
+            if (session == null) {
+                continue;
+            }
+
+            if (Hibernate.isInitialized(session.getUsers())) {
+                participants.put(session.getId(), Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList)
+                        .stream().map(User::getId).collect(Collectors.toList()));
+            } else {
+                participants.put(session.getId(), new ArrayList<>());
+                unresolved.add(session.getId());
+            }
+        }
+
+        if (!unresolved.isEmpty()) {
+            for (Object[] row : this.sessionRepository.findParticipantIds(unresolved)) {
+                participants.get(((Number) row[0]).longValue()).add(((Number) row[1]).longValue());
+            }
+        }
+
+        return participants;
+    }
+
+    /**
+     * Resolves every teacher referenced by the given DTOs with a single lookup. Unknown ids are left
+     * out, so the corresponding sessions are mapped without a teacher.
+     */
+    protected Map<Long, Teacher> resolveTeachers(List<SessionDto> sessionDtos) {
+        Set<Long> ids = new HashSet<>();
+        for (SessionDto sessionDto : sessionDtos) {
+            if (sessionDto != null && sessionDto.getTeacher_id() != null) {
+                ids.add(sessionDto.getTeacher_id());
+            }
+        }
+
+        return ids.isEmpty() ? Collections.emptyMap() : this.teacherService.findAllById(ids);
+    }
+
+    /**
+     * Loads every user referenced by the given DTOs in one query. Unknown ids are left out.
+     */
+    protected Map<Long, User> resolveUsers(List<SessionDto> sessionDtos) {
+        Set<Long> ids = new HashSet<>();
+        for (SessionDto sessionDto : sessionDtos) {
+            if (sessionDto != null && sessionDto.getUsers() != null) {
+                ids.addAll(sessionDto.getUsers());
+            }
+        }
+
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        return this.userService.findAllById(ids.stream().filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+    }
 }
@@ -8,6 +8,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -27,7 +28,9 @@ import java.util.List;
 @ToString
 public class Session {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "session_ids")
+    @TableGenerator(name = "session_ids", table = "ID_GENERATORS", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "SESSIONS", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -41,17 +44,29 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
+    @Min(1)
+    private Integer capacity;
+
+    // Maintained by conditional UPDATEs in SessionRepository, never written from the entity
+    @Column(name = "participant_count", insertable = false, updatable = false)
+    private Integer participantCount;
+
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+            inverseJoinColumns = @JoinColumn( name = "user_id" ),
+            uniqueConstraints = @UniqueConstraint(name = "UK_PARTICIPATE_SESSION_USER", columnNames = {"session_id", "user_id"}) )
+    @ToString.Exclude
     private List<User> users;
 
+    @Version
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
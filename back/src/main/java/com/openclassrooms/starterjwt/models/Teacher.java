@@ -23,7 +23,9 @@ import java.time.LocalDateTime;
 @ToString
 public class Teacher {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "teacher_ids")
+    @TableGenerator(name = "teacher_ids", table = "ID_GENERATORS", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "TEACHERS", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -36,6 +38,9 @@ public class Teacher {
     @Column(name = "first_name")
     private String firstName;
 
+    @Version
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -26,7 +26,9 @@ import java.time.LocalDateTime;
 @ToString
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_ids")
+  @TableGenerator(name = "user_ids", table = "ID_GENERATORS", pkColumnName = "name", valueColumnName = "next_val",
+          pkColumnValue = "USERS", allocationSize = 50)
   private Long id;
 
   @NonNull
@@ -51,6 +53,13 @@ public class User {
   @NonNull
   private boolean admin;
 
+  @Version
+  private Long version;
+
+  // Only ever changed by UserRepository.incrementTokenVersion; the column defaults to 0 on insert
+  @Column(name = "token_version", insertable = false, updatable = false)
+  private Integer tokenVersion;
+
   @CreatedDate
   @Column(name = "created_at", updatable = false)
   private LocalDateTime createdAt;
@@ -0,0 +1,28 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import javax.validation.constraints.*;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Fields left null are not modified.
+ */
+@Data
+public class SessionPatchRequest {
+  @Size(min = 1, max = 50)
+  private String name;
+
+  private Date date;
+
+  private Long teacher_id;
+
+  @Size(max = 2500)
+  private String description;
+
+  @Min(1)
+  private Integer capacity;
+
+  private Long version;
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SessionBulkResponse {
+  private List<SessionDto> sessions;
+
+  private List<ItemError> errors;
+
+  @Getter
+  @AllArgsConstructor
+  public static class ItemError {
+    private int index;
+
+    private List<String> messages;
+  }
+}
@@ -0,0 +1,15 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import com.openclassrooms.starterjwt.dto.SessionSummaryDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SessionPageResponse {
+  private List<SessionSummaryDto> sessions;
+
+  private String nextCursor;
+}
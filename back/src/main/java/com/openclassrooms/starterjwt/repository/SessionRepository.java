@@ -1,9 +1,101 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import javax.persistence.TemporalType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository  extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+
+    // Holds the session row until the transaction ends, as the seat updates below do
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Session s WHERE s.id = :id")
+    Optional<Session> findForUpdateById(@Param("id") Long id);
+
+    // Driven from PARTICIPATE by user_id, so only this user's bookings are read
+    @Query(value = "SELECT s.* FROM PARTICIPATE p JOIN SESSIONS s ON s.id = p.session_id"
+            + " WHERE p.user_id = :userId"
+            + " AND (s.date > :afterDate OR (s.date = :afterDate AND s.id > :afterId))"
+            + " ORDER BY s.date ASC, s.id ASC", nativeQuery = true)
+    List<Session> findByParticipant(@Param("userId") Long userId,
+                                    @Param("afterDate") @Temporal(TemporalType.TIMESTAMP) Date afterDate,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+    @Query(value = "SELECT session_id, user_id FROM PARTICIPATE WHERE session_id IN (:sessionIds) ORDER BY session_id, user_id",
+            nativeQuery = true)
+    List<Object[]> findParticipantIds(@Param("sessionIds") Collection<Long> sessionIds);
+
+    // One aggregate over the PARTICIPATE key range of each session: [session_id, participants, 1 if the user is one of them]
+    @Query(value = "SELECT session_id, COUNT(*), MAX(CASE WHEN user_id = :userId THEN 1 ELSE 0 END) FROM PARTICIPATE"
+            + " WHERE session_id IN (:sessionIds) GROUP BY session_id", nativeQuery = true)
+    List<Object[]> findParticipation(@Param("sessionIds") Collection<Long> sessionIds, @Param("userId") Long userId);
+
+    @Query(value = "SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    long countParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Session s SET s.name = :name, s.date = :date, s.description = :description,"
+            + " s.capacity = :capacity, s.teacher = :teacher, s.updatedAt = :updatedAt, s.version = s.version + 1"
+            + " WHERE s.id = :id AND (:version IS NULL OR s.version = :version)"
+            + " AND (:capacity IS NULL OR s.participantCount <= :capacity)")
+    int updateDetails(@Param("id") Long id,
+                      @Param("version") Long version,
+                      @Param("name") String name,
+                      @Param("date") @Temporal(TemporalType.TIMESTAMP) Date date,
+                      @Param("description") String description,
+                      @Param("capacity") Integer capacity,
+                      @Param("teacher") Teacher teacher,
+                      @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO PARTICIPATE (session_id, user_id) VALUES (:sessionId, :userId)", nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE SESSIONS SET participant_count = participant_count + 1, version = version + 1"
+            + " WHERE id = :id AND (capacity IS NULL OR participant_count < capacity)", nativeQuery = true)
+    int reserveSeat(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE SESSIONS SET participant_count = participant_count - 1, version = version + 1"
+            + " WHERE id = :id AND participant_count > 0", nativeQuery = true)
+    int releaseSeat(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE SESSIONS SET participant_count = (SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = :id)"
+            + " WHERE id = :id", nativeQuery = true)
+    int refreshParticipantCount(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE SESSIONS SET participant_count = (SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = SESSIONS.id)"
+            + " WHERE id IN (:ids)", nativeQuery = true)
+    int refreshParticipantCounts(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,24 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface SessionRepositoryCustom {
+    /**
+     * Sets the given attributes of one session in a single UPDATE and bumps its version, leaving every
+     * other column and the participants untouched. Associations are given by the id of their target.
+     * A non-null version restricts the update to that version.
+     *
+     * @return the number of updated rows
+     */
+    int updateFields(Long id, Long version, Map<String, Object> changes);
+
+    /**
+     * Returns at most {@code limit} sessions in (date, id) order, within [from, to) and of the given
+     * teacher when those are set, and strictly after (afterDate, afterId) when a cursor is given.
+     */
+    List<Session> findPage(Date from, Date to, Long teacherId, Date afterDate, Long afterId, int limit);
+}
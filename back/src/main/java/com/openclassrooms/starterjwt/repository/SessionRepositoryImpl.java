@@ -0,0 +1,117 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class SessionRepositoryImpl implements SessionRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateFields(Long id, Long version, Map<String, Object> changes) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Session> update = builder.createCriteriaUpdate(Session.class);
+        Root<Session> root = update.from(Session.class);
+
+        changes.forEach((name, value) -> {
+            Attribute<? super Session, ?> attribute = root.getModel().getAttribute(name);
+            if (value != null && attribute.isAssociation()) {
+                // A proxy is enough to bind the foreign key, the target row is never read
+                value = entityManager.getReference(attribute.getJavaType(), value);
+            }
+            update.set(root.<Object>get(name), value);
+        });
+
+        Path<Long> versionPath = root.get("version");
+        update.set(versionPath, builder.sum(versionPath, 1L));
+        update.set(root.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+
+        Predicate where = builder.equal(root.get("id"), id);
+        if (version != null) {
+            where = builder.and(where, builder.equal(versionPath, version));
+        }
+        // A capacity below the seats already taken would leave the session overbooked
+        Object capacity = changes.get("capacity");
+        if (capacity != null) {
+            where = builder.and(where, builder.le(root.<Integer>get("participantCount"), (Integer) capacity));
+        }
+        update.where(where);
+
+        int updated = entityManager.createQuery(update).executeUpdate();
+        // Sessions already loaded in this persistence context no longer reflect the row
+        entityManager.clear();
+
+        return updated;
+    }
+
+    @Override
+    public List<Session> findPage(Date from, Date to, Long teacherId, Date afterDate, Long afterId, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Session> query = builder.createQuery(Session.class);
+        Root<Session> root = query.from(Session.class);
+        Path<Date> date = root.get("date");
+        Path<Long> id = root.get("id");
+
+        // Only the bounds that are set become predicates, so each combination is planned on its own.
+        // Values are always bound, numeric literals would otherwise be inlined into the statement.
+        List<Predicate> where = new ArrayList<>();
+        ParameterExpression<Long> teacherParam = builder.parameter(Long.class, "teacherId");
+        ParameterExpression<Date> fromParam = builder.parameter(Date.class, "from");
+        ParameterExpression<Date> toParam = builder.parameter(Date.class, "to");
+        ParameterExpression<Date> afterDateParam = builder.parameter(Date.class, "afterDate");
+        ParameterExpression<Long> afterIdParam = builder.parameter(Long.class, "afterId");
+        if (teacherId != null) {
+            where.add(builder.equal(root.get("teacher").get("id"), teacherParam));
+        }
+        if (from != null) {
+            where.add(builder.greaterThanOrEqualTo(date, fromParam));
+        }
+        if (to != null) {
+            where.add(builder.lessThan(date, toParam));
+        }
+        if (afterDate != null) {
+            // The leading date bound gives the index a range to seek to, the rest breaks ties on that date
+            where.add(builder.greaterThanOrEqualTo(date, afterDateParam));
+            where.add(builder.or(builder.greaterThan(date, afterDateParam), builder.greaterThan(id, afterIdParam)));
+        }
+        query.select(root)
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(builder.asc(date), builder.asc(id));
+
+        TypedQuery<Session> typed = entityManager.createQuery(query).setMaxResults(limit);
+        if (teacherId != null) {
+            typed.setParameter(teacherParam, teacherId);
+        }
+        if (from != null) {
+            typed.setParameter(fromParam, from, TemporalType.TIMESTAMP);
+        }
+        if (to != null) {
+            typed.setParameter(toParam, to, TemporalType.TIMESTAMP);
+        }
+        if (afterDate != null) {
+            typed.setParameter(afterDateParam, afterDate, TemporalType.TIMESTAMP);
+            typed.setParameter(afterIdParam, afterId);
+        }
+
+        return typed.getResultList();
+    }
+}
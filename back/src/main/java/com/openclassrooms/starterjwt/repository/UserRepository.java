@@ -1,9 +1,15 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.openclassrooms.starterjwt.models.User;
 
@@ -12,4 +18,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  @Query("SELECT u.version AS version, u.updatedAt AS updatedAt FROM User u WHERE u.id = :id")
+  Optional<VersionStamp> findVersionStampById(@Param("id") Long id);
+
+  // Walks the PARTICIPATE key of one session in user id order, joining each row to its user
+  @Query(value = "SELECT u.* FROM PARTICIPATE p JOIN USERS u ON u.id = p.user_id"
+      + " WHERE p.session_id = :sessionId AND p.user_id > :afterId ORDER BY p.user_id", nativeQuery = true)
+  List<User> findParticipants(@Param("sessionId") Long sessionId, @Param("afterId") Long afterId, Pageable pageable);
+
+  @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+  Optional<Integer> findTokenVersionById(@Param("id") Long id);
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.id = :id")
+  int incrementTokenVersion(@Param("id") Long id);
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1 WHERE u.email = :email")
+  int updatePassword(@Param("email") String email, @Param("password") String password);
 }
@@ -0,0 +1,12 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version and modification time of a row, read without loading the entity.
+ */
+public interface VersionStamp {
+    Long getVersion();
+
+    LocalDateTime getUpdatedAt();
+}
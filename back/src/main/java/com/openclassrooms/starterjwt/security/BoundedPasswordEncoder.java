@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.security;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+
+/**
+ * Bounds the (deliberately slow) delegate encoder. Hashing runs on the calling thread, at most
+ * {@code threads} at a time; up to {@code queueCapacity} more callers wait for a slot, and any
+ * caller beyond that fails fast with a 503 instead of piling up on the servlet pool.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+  private final PasswordEncoder delegate;
+
+  private final Semaphore admitted;
+
+  private final Semaphore running;
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+    this.delegate = delegate;
+    this.admitted = new Semaphore(threads + queueCapacity);
+    this.running = new Semaphore(threads, true);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return run(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return run(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  int queuedTasks() {
+    return running.getQueueLength();
+  }
+
+  private <T> T run(Supplier<T> task) {
+    if (!admitted.tryAcquire()) {
+      throw new ServiceUnavailableException("Password encoder is saturated");
+    }
+
+    try {
+      running.acquire();
+    } catch (InterruptedException e) {
+      admitted.release();
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException("Interrupted while waiting for the password encoder");
+    }
+
+    try {
+      return task.get();
+    } finally {
+      running.release();
+      admitted.release();
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -31,6 +32,15 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   @Autowired
   private AuthEntryPointJwt unauthorizedHandler;
 
+  @Value("${oc.app.bcryptStrength:10}")
+  private int bcryptStrength;
+
+  @Value("${oc.app.passwordEncoderThreads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+  private int passwordEncoderThreads;
+
+  @Value("${oc.app.passwordEncoderQueueCapacity:50}")
+  private int passwordEncoderQueueCapacity;
+
   @Bean
   public AuthTokenFilter authenticationJwtTokenFilter() {
     return new AuthTokenFilter();
@@ -49,7 +59,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
   @Bean
   public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+    return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), passwordEncoderThreads, passwordEncoderQueueCapacity);
   }
 
   @Override
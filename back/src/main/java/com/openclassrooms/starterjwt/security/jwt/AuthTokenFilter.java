@@ -17,14 +17,19 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
+
+import io.jsonwebtoken.Claims;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private JwtUtils jwtUtils;
 
   @Autowired
-  private UserDetailsServiceImpl userDetailsService;
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @Autowired
+  private UserDetailsCache userDetailsCache;
 
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
@@ -33,10 +38,14 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
+      JwtValidationResult result = jwt != null ? verifiedTokenCache.parseJwtToken(jwt) : null;
+      if (result != null && result.isValid()) {
+        Claims claims = result.getClaims();
+        UserDetails userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+        if (userDetails == null) {
+          userDetails = userDetailsCache.loadUserByUsername(claims.getSubject());
+        }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
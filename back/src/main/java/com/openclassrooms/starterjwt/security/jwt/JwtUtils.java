@@ -1,9 +1,13 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import java.security.Key;
 import java.util.Date;
 
+import javax.crypto.spec.SecretKeySpec;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
@@ -11,6 +15,7 @@ import org.springframework.stereotype.Component;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
 @Component
 public class JwtUtils {
@@ -22,38 +27,124 @@ public class JwtUtils {
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  @Value("${oc.app.jwtSelfContained:false}")
+  private boolean jwtSelfContained;
+
+  @Autowired
+  private TokenRevocationRegistry tokenRevocationRegistry;
+
+  static final String CLAIM_ID = "id";
+  static final String CLAIM_FIRST_NAME = "firstName";
+  static final String CLAIM_LAST_NAME = "lastName";
+  static final String CLAIM_ADMIN = "admin";
+  static final String CLAIM_VERSION = "ver";
+
+  // Built on first use so the secret is decoded once rather than on every sign/parse
+  private volatile Key signingKey;
+
+  private volatile JwtParser parser;
+
   public String generateJwtToken(Authentication authentication) {
 
     UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
-    return Jwts.builder()
+    JwtBuilder builder = Jwts.builder()
         .setSubject((userPrincipal.getUsername()))
         .setIssuedAt(new Date())
-        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
-        .compact();
+        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs));
+
+    if (jwtSelfContained) {
+      builder.claim(CLAIM_ID, userPrincipal.getId())
+          .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+          .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
+          .claim(CLAIM_ADMIN, Boolean.TRUE.equals(userPrincipal.getAdmin()))
+          .claim(CLAIM_VERSION, userPrincipal.getTokenVersion() != null
+              ? userPrincipal.getTokenVersion()
+              : tokenRevocationRegistry.currentVersion(userPrincipal.getId()));
+    }
+
+    return builder.signWith(SignatureAlgorithm.HS512, signingKey()).compact();
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    return parser().parseClaimsJws(token).getBody().getSubject();
+  }
+
+  /**
+   * Builds the principal straight from verified claims, or returns null when self-contained
+   * tokens are disabled or the token predates them and the user has to be looked up.
+   */
+  public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+    if (!jwtSelfContained || !(claims.get(CLAIM_ID) instanceof Number)) {
+      return null;
+    }
+
+    return UserDetailsImpl
+        .builder()
+        .id(((Number) claims.get(CLAIM_ID)).longValue())
+        .username(claims.getSubject())
+        .firstName(claims.get(CLAIM_FIRST_NAME, String.class))
+        .lastName(claims.get(CLAIM_LAST_NAME, String.class))
+        .admin(claims.get(CLAIM_ADMIN, Boolean.class))
+        .build();
   }
 
   public boolean validateJwtToken(String authToken) {
+    return parseJwtToken(authToken).isValid();
+  }
+
+  /**
+   * Verifies the token once and hands back its claims, or the reason it was rejected.
+   */
+  public JwtValidationResult parseJwtToken(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      Claims claims = parser().parseClaimsJws(authToken).getBody();
+      if (isRevoked(claims)) {
+        logger.error("JWT token is revoked for user: {}", claims.getSubject());
+        return JwtValidationResult.invalid(JwtValidationResult.Failure.REVOKED);
+      }
+      return JwtValidationResult.valid(claims);
     } catch (SignatureException e) {
       logger.error("Invalid JWT signature: {}", e.getMessage());
+      return JwtValidationResult.invalid(JwtValidationResult.Failure.INVALID_SIGNATURE);
     } catch (MalformedJwtException e) {
       logger.error("Invalid JWT token: {}", e.getMessage());
+      return JwtValidationResult.invalid(JwtValidationResult.Failure.MALFORMED);
     } catch (ExpiredJwtException e) {
       logger.error("JWT token is expired: {}", e.getMessage());
+      return JwtValidationResult.invalid(JwtValidationResult.Failure.EXPIRED);
     } catch (UnsupportedJwtException e) {
       logger.error("JWT token is unsupported: {}", e.getMessage());
+      return JwtValidationResult.invalid(JwtValidationResult.Failure.UNSUPPORTED);
     } catch (IllegalArgumentException e) {
       logger.error("JWT claims string is empty: {}", e.getMessage());
+      return JwtValidationResult.invalid(JwtValidationResult.Failure.EMPTY);
     }
+  }
+
+  boolean isRevoked(Claims claims) {
+    Object id = claims.get(CLAIM_ID);
+    Object version = claims.get(CLAIM_VERSION);
 
-    return false;
+    return id instanceof Number && version instanceof Number
+        && tokenRevocationRegistry.isRevoked(((Number) id).longValue(), ((Number) version).intValue());
+  }
+
+  private Key signingKey() {
+    Key key = signingKey;
+    if (key == null) {
+      key = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+      signingKey = key;
+    }
+    return key;
+  }
+
+  private JwtParser parser() {
+    JwtParser jwtParser = parser;
+    if (jwtParser == null) {
+      jwtParser = Jwts.parser().setSigningKey(signingKey());
+      parser = jwtParser;
+    }
+    return jwtParser;
   }
 }
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+public final class JwtValidationResult {
+  public enum Failure {
+    INVALID_SIGNATURE,
+    MALFORMED,
+    EXPIRED,
+    UNSUPPORTED,
+    EMPTY,
+    REVOKED
+  }
+
+  private final Claims claims;
+
+  private final Failure failure;
+
+  private JwtValidationResult(Claims claims, Failure failure) {
+    this.claims = claims;
+    this.failure = failure;
+  }
+
+  public static JwtValidationResult valid(Claims claims) {
+    return new JwtValidationResult(claims, null);
+  }
+
+  public static JwtValidationResult invalid(Failure failure) {
+    return new JwtValidationResult(null, failure);
+  }
+
+  public boolean isValid() {
+    return failure == null;
+  }
+
+  public Claims getClaims() {
+    return claims;
+  }
+
+  public Failure getFailure() {
+    return failure;
+  }
+}
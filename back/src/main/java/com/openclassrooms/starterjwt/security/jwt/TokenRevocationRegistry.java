@@ -0,0 +1,49 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.cache.ExpiringLruCache;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+
+/**
+ * Per-user token versions for self-contained JWTs. Revoking a user bumps its version so every
+ * token stamped with an older one is rejected, and a user that no longer exists rejects every token.
+ * Versions are stored in USERS.token_version, so revocations survive restarts and reach every
+ * instance; each instance caches them for {@code ttlMs}, which bounds how long it may still accept
+ * a token revoked elsewhere.
+ */
+@Component
+public class TokenRevocationRegistry {
+  // Version of users that no longer exist, never lower than the one a token carries
+  static final int DELETED = Integer.MAX_VALUE;
+
+  private final UserRepository userRepository;
+
+  private final ExpiringLruCache<Long, Integer> versions;
+
+  public TokenRevocationRegistry(UserRepository userRepository,
+                                 @Value("${oc.app.tokenVersionCacheSize:10000}") int maxSize,
+                                 @Value("${oc.app.tokenVersionCacheTtlMs:30000}") long ttlMs) {
+    this.userRepository = userRepository;
+    this.versions = new ExpiringLruCache<>(maxSize, ttlMs);
+  }
+
+  public int currentVersion(Long userId) {
+    Integer version = versions.get(userId);
+    if (version == null) {
+      version = userRepository.findTokenVersionById(userId).orElse(DELETED);
+      versions.put(userId, version);
+    }
+    return version;
+  }
+
+  public void revoke(Long userId) {
+    userRepository.incrementTokenVersion(userId);
+    versions.remove(userId);
+  }
+
+  public boolean isRevoked(Long userId, int version) {
+    return version < currentVersion(userId);
+  }
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.cache.ExpiringLruCache;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remembers the claims of recently verified tokens, keyed by their SHA-256 digest, so clients
+ * reusing the same bearer token skip signature verification until the token expires.
+ */
+@Component
+public class VerifiedTokenCache {
+  private final JwtUtils jwtUtils;
+
+  private final ExpiringLruCache<String, Claims> cache;
+
+  private final Counter hits;
+
+  private final Counter misses;
+
+  public VerifiedTokenCache(JwtUtils jwtUtils,
+                            MeterRegistry meterRegistry,
+                            @Value("${oc.app.jwtCacheSize:10000}") int maxSize,
+                            @Value("${oc.app.jwtCacheTtlMs:300000}") long ttlMs) {
+    this.jwtUtils = jwtUtils;
+    this.cache = new ExpiringLruCache<>(maxSize, ttlMs);
+    this.hits = meterRegistry.counter("auth.jwt.cache", "result", "hit");
+    this.misses = meterRegistry.counter("auth.jwt.cache", "result", "miss");
+    meterRegistry.gauge("auth.jwt.cache.size", cache, ExpiringLruCache::size);
+  }
+
+  public JwtValidationResult parseJwtToken(String authToken) {
+    String key = digest(authToken);
+    Claims cached = cache.get(key);
+    if (cached != null) {
+      if (jwtUtils.isRevoked(cached)) {
+        cache.remove(key);
+        return JwtValidationResult.invalid(JwtValidationResult.Failure.REVOKED);
+      }
+      hits.increment();
+      return JwtValidationResult.valid(cached);
+    }
+
+    misses.increment();
+    JwtValidationResult result = jwtUtils.parseJwtToken(authToken);
+    if (result.isValid()) {
+      Date expiration = result.getClaims().getExpiration();
+      if (expiration != null) {
+        cache.putUntil(key, result.getClaims(), expiration.getTime());
+      }
+    }
+
+    return result;
+  }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.cache.ExpiringLruCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Component
+public class UserDetailsCache {
+  private final UserDetailsServiceImpl userDetailsService;
+
+  private final ExpiringLruCache<String, UserDetailsImpl> cache;
+
+  private final Counter hits;
+
+  private final Counter misses;
+
+  public UserDetailsCache(UserDetailsServiceImpl userDetailsService,
+                          MeterRegistry meterRegistry,
+                          @Value("${oc.app.userDetailsCacheSize:1000}") int maxSize,
+                          @Value("${oc.app.userDetailsCacheTtlMs:60000}") long ttlMs) {
+    this.userDetailsService = userDetailsService;
+    this.cache = new ExpiringLruCache<>(maxSize, ttlMs);
+    this.hits = meterRegistry.counter("auth.userdetails.cache", "result", "hit");
+    this.misses = meterRegistry.counter("auth.userdetails.cache", "result", "miss");
+    meterRegistry.gauge("auth.userdetails.cache.size", cache, ExpiringLruCache::size);
+  }
+
+  public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    UserDetailsImpl cached = cache.get(username);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    misses.increment();
+    UserDetailsImpl userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(username);
+    cache.put(username, userDetails);
+
+    return userDetails;
+  }
+
+  public void evictById(Long id) {
+    cache.removeIf(userDetails -> id.equals(userDetails.getId()));
+  }
+}
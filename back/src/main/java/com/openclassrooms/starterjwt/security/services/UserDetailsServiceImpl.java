@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security.services;
 
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -10,7 +11,7 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
   UserRepository userRepository;
 
   UserDetailsServiceImpl(UserRepository userRepository) {
@@ -29,8 +30,27 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
+            .tokenVersion(user.getTokenVersion())
             .password(user.getPassword())
             .build();
   }
 
+  // Called by DaoAuthenticationProvider after a successful login when the stored hash is weaker than the configured encoder
+  @Override
+  public UserDetails updatePassword(UserDetails user, String newPassword) {
+    userRepository.updatePassword(user.getUsername(), newPassword);
+
+    UserDetailsImpl details = (UserDetailsImpl) user;
+    return UserDetailsImpl
+            .builder()
+            .id(details.getId())
+            .username(details.getUsername())
+            .lastName(details.getLastName())
+            .firstName(details.getFirstName())
+            .admin(details.getAdmin())
+            .tokenVersion(details.getTokenVersion())
+            .password(newPassword)
+            .build();
+  }
 }
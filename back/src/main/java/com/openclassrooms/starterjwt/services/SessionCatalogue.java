@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Every session as served by the list and detail endpoints in id order, tagged with the write
+ * version it was built from. Instances are never changed once built: applying changes yields a new catalogue.
+ */
+public class SessionCatalogue {
+    private final long version;
+
+    private final long builtAt;
+
+    private final List<SessionDto> sessions;
+
+    private final Map<Long, SessionDto> sessionsById;
+
+    private final LocalDateTime lastModified;
+
+    public SessionCatalogue(long version, List<SessionDto> sessions) {
+        this(version, null, sessions);
+    }
+
+    /**
+     * @param lastWriteAt time of the latest write known when the sessions were loaded, or null
+     */
+    public SessionCatalogue(long version, LocalDateTime lastWriteAt, List<SessionDto> sessions) {
+        this(version, System.currentTimeMillis(), lastWriteAt, copy(new TreeMap<>(), sessions));
+    }
+
+    private SessionCatalogue(long version, long builtAt, LocalDateTime lastWriteAt, TreeMap<Long, SessionDto> byId) {
+        LocalDateTime latest = lastWriteAt;
+        for (SessionDto session : byId.values()) {
+            if (session.getUpdatedAt() != null && (latest == null || session.getUpdatedAt().isAfter(latest))) {
+                latest = session.getUpdatedAt();
+            }
+        }
+
+        this.version = version;
+        this.builtAt = builtAt;
+        this.sessions = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+        this.sessionsById = Collections.unmodifiableMap(byId);
+        this.lastModified = latest;
+    }
+
+    /**
+     * Returns a catalogue at the given version where the sessions of {@code refreshedIds} are replaced
+     * by {@code refreshed}; ids without a refreshed session were deleted. Only those entries are copied.
+     */
+    public SessionCatalogue withChanges(long version, LocalDateTime lastWriteAt, Collection<Long> refreshedIds,
+                                        List<SessionDto> refreshed) {
+        TreeMap<Long, SessionDto> byId = new TreeMap<>(this.sessionsById);
+        byId.keySet().removeAll(refreshedIds);
+
+        return new SessionCatalogue(version, this.builtAt, lastWriteAt, copy(byId, refreshed));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Time of the full load this catalogue derives from, in epoch milliseconds.
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public List<SessionDto> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * The later of the last write time it was built with and the most recent updatedAt across the
+     * catalogue, or null when neither is known. Deletes leave no updatedAt behind, so only the former
+     * accounts for them.
+     */
+    public LocalDateTime getLastModified() {
+        return lastModified;
+    }
+
+    public SessionDto findById(Long id) {
+        return sessionsById.get(id);
+    }
+
+    private static TreeMap<Long, SessionDto> copy(TreeMap<Long, SessionDto> byId, List<SessionDto> sessions) {
+        for (SessionDto session : sessions) {
+            byId.put(session.getId(), new SessionDto(session.getId(), session.getName(),
+                    session.getDate() != null ? new Date(session.getDate().getTime()) : null,
+                    session.getTeacher_id(), session.getDescription(), session.getCapacity(),
+                    session.getUsers() != null ? new ArrayList<>(session.getUsers()) : null,
+                    session.getVersion(), session.getCreatedAt(), session.getUpdatedAt()));
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,47 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset position in the (date, id) ordering of sessions.
+ */
+@Getter
+@AllArgsConstructor
+public class SessionCursor {
+    private final Date date;
+
+    private final Long id;
+
+    public static SessionCursor of(Session session) {
+        return new SessionCursor(session.getDate(), session.getId());
+    }
+
+    public static SessionCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+
+            return new SessionCursor(new Date(Long.parseLong(decoded.substring(0, separator))),
+                    Long.valueOf(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    public String encode() {
+        String raw = this.date.getTime() + ":" + this.id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,78 +1,500 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.BulkRejectedException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.payload.request.SessionPatchRequest;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
 public class SessionService {
+    public static final String OVERBOOKED = "capacity is below the number of participants";
+
     private final SessionRepository sessionRepository;
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    private final SessionMapper sessionMapper;
+
+    private final boolean catalogueEnabled;
+
+    // Bounds how long writes made outside this instance stay invisible to the catalogue
+    private final long catalogueMaxAgeMs;
+
+    // Bumped once per committed write; a catalogue built from an older version is stale
+    private final AtomicLong writeVersion = new AtomicLong();
+
+    // Sessions written since the catalogue last caught up; added to before writeVersion is bumped
+    private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+
+    // Time of the latest committed write, deletes included
+    private volatile LocalDateTime lastWriteAt = LocalDateTime.now();
+
+    private final ReentrantLock catalogueLock = new ReentrantLock();
+
+    private volatile SessionCatalogue catalogue;
+
+    public SessionService(SessionRepository sessionRepository,
+                          UserRepository userRepository,
+                          WaitlistRepository waitlistRepository,
+                          SessionMapper sessionMapper,
+                          @Value("${oc.app.sessionCatalogueEnabled:true}") boolean catalogueEnabled,
+                          @Value("${oc.app.sessionCatalogueMaxAgeMs:60000}") long catalogueMaxAgeMs) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.sessionMapper = sessionMapper;
+        this.catalogueEnabled = catalogueEnabled;
+        this.catalogueMaxAgeMs = catalogueMaxAgeMs;
     }
 
+    @Transactional
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        if (isOverbooked(session)) {
+            throw new ConflictException(OVERBOOKED);
+        }
+
+        Session created = this.sessionRepository.save(session);
+        this.sessionRepository.refreshParticipantCount(created.getId());
+        catalogueChanged(created.getId());
+
+        return created;
+    }
+
+    /**
+     * Persists all sessions in one transaction, so either every one of them is created or none is.
+     */
+    @Transactional
+    public List<Session> createAll(List<Session> sessions) {
+        List<Session> created = this.sessionRepository.saveAll(sessions);
+
+        List<Long> withParticipants = created.stream()
+                .filter(session -> session.getUsers() != null && !session.getUsers().isEmpty())
+                .map(Session::getId)
+                .collect(Collectors.toList());
+        if (!withParticipants.isEmpty()) {
+            this.sessionRepository.refreshParticipantCounts(withParticipants);
+        }
+        catalogueChanged(created.stream().map(Session::getId).collect(Collectors.toList()));
+
+        return created;
     }
 
     public void delete(Long id) {
         this.sessionRepository.deleteById(id);
+        catalogueChanged(id);
+    }
+
+    /**
+     * Returns a session as served by the detail endpoint, from the catalogue when it is enabled.
+     */
+    public SessionDto getDtoById(Long id) {
+        if (!this.catalogueEnabled) {
+            return this.sessionRepository.findById(id).map(this.sessionMapper::toDto).orElse(null);
+        }
+
+        return getCatalogue().findById(id);
+    }
+
+    /**
+     * Returns the current catalogue. Sessions written since it was built are reloaded one by one;
+     * the whole table is only loaded on first use and once the catalogue is older than its max age.
+     */
+    public SessionCatalogue getCatalogue() {
+        if (!this.catalogueEnabled) {
+            return buildCatalogue(null);
+        }
+
+        SessionCatalogue current = this.catalogue;
+        boolean upToDate = current != null && current.getVersion() == this.writeVersion.get();
+        if (upToDate && !isExpired(current)) {
+            return current;
+        }
+
+        // Only pending writes are waited for; an expired catalogue is served while one reader reloads it
+        if (upToDate) {
+            if (!this.catalogueLock.tryLock()) {
+                return current;
+            }
+        } else {
+            this.catalogueLock.lock();
+        }
+
+        try {
+            current = this.catalogue;
+            if (current == null || isExpired(current)) {
+                current = buildCatalogue(current);
+            } else if (current.getVersion() != this.writeVersion.get()) {
+                current = applyChanges(current);
+            }
+            this.catalogue = current;
+
+            return current;
+        } finally {
+            this.catalogueLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the catalogue so that the next read loads every session again.
+     */
+    public void invalidateCatalogue() {
+        this.catalogue = null;
     }
 
     public List<Session> findAll() {
         return this.sessionRepository.findAll();
     }
 
+    public List<Session> findPage(SessionCursor after, Date from, Date to, Long teacherId, int limit) {
+        return this.sessionRepository.findPage(from, to, teacherId,
+                after != null ? after.getDate() : null,
+                after != null ? after.getId() : null,
+                limit);
+    }
+
+    /**
+     * Returns the upcoming sessions the user participates in, in (date, id) order, starting after the cursor.
+     */
+    public List<Session> findUpcomingByParticipant(Long userId, SessionCursor after, Pageable pageable) {
+        Date now = new Date();
+        boolean fromCursor = after != null && after.getDate().after(now);
+
+        return this.sessionRepository.findByParticipant(userId,
+                fromCursor ? after.getDate() : now,
+                fromCursor ? after.getId() : 0L,
+                pageable);
+    }
+
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Overwrites the editable fields with a single conditional UPDATE; participants are left untouched.
+     * When the session carries a version, the update only applies if it is still current. A capacity
+     * below the current number of participants is rejected.
+     */
+    @Transactional
     public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+        int updated = this.sessionRepository.updateDetails(id, session.getVersion(), session.getName(), session.getDate(),
+                session.getDescription(), session.getCapacity(), session.getTeacher(), LocalDateTime.now());
+
+        if (updated == 0) {
+            throw updateRejected(id, session.getCapacity());
+        }
+        // The capacity may have grown, or been lifted altogether
+        promoteFromWaitlist(id);
+        catalogueChanged(id);
+
+        return this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+    }
+
+    /**
+     * Applies {@link #update} to every session, each identified by its id, in one transaction. When any
+     * of them is rejected none is applied, and the exception tells why each rejected one was refused.
+     */
+    @Transactional
+    public List<Session> updateAll(List<Session> sessions) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, String> rejected = new LinkedHashMap<>();
+
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            int updated = this.sessionRepository.updateDetails(session.getId(), session.getVersion(), session.getName(),
+                    session.getDate(), session.getDescription(), session.getCapacity(), session.getTeacher(), now);
+
+            if (updated == 0) {
+                // Worded like the other item errors: the field at fault, then the problem
+                RuntimeException rejection = updateRejected(session.getId(), session.getCapacity());
+                if (rejection instanceof NotFoundException) {
+                    rejected.put(i, "id unknown session " + session.getId());
+                } else {
+                    rejected.put(i, rejection.getMessage() != null ? rejection.getMessage() : "version is not the current one");
+                }
+            }
+        }
+
+        if (!rejected.isEmpty()) {
+            throw new BulkRejectedException(rejected);
+        }
+
+        List<Long> ids = sessions.stream().map(Session::getId).collect(Collectors.toList());
+        ids.forEach(this::promoteFromWaitlist);
+        catalogueChanged(ids);
+
+        Map<Long, Session> updatedById = this.sessionRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Session::getId, session -> session));
+
+        return ids.stream().map(updatedById::get).collect(Collectors.toList());
     }
 
+    /**
+     * Updates only the fields present in the request; participants are only ever added from the
+     * waitlist when the capacity grows. A capacity below the current number of participants is rejected.
+     */
+    @Transactional
+    public Session patch(Long id, SessionPatchRequest request) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfPresent(changes, "name", request.getName());
+        putIfPresent(changes, "date", request.getDate());
+        putIfPresent(changes, "description", request.getDescription());
+        putIfPresent(changes, "capacity", request.getCapacity());
+        putIfPresent(changes, "teacher", request.getTeacher_id());
+
+        if (!changes.isEmpty()) {
+            int updated;
+            try {
+                updated = this.sessionRepository.updateFields(id, request.getVersion(), changes);
+            } catch (DataIntegrityViolationException e) {
+                throw new BadRequestException("Unknown teacher id: " + request.getTeacher_id());
+            }
+
+            if (updated == 0) {
+                throw updateRejected(id, request.getCapacity());
+            }
+            if (request.getCapacity() != null) {
+                promoteFromWaitlist(id);
+            }
+            catalogueChanged(id);
+        }
+
+        return this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+    }
+
+    @Transactional
     public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+        if (!this.userRepository.existsById(userId)) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
-            throw new BadRequestException();
+        // The conditional increment row-locks this session only, so concurrent signups
+        // for the same class queue up while other sessions stay unaffected
+        if (this.sessionRepository.reserveSeat(id) == 0) {
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            throw new ConflictException();
         }
 
-        session.getUsers().add(user);
+        // The (session_id, user_id) unique key rejects duplicates, even between concurrent requests;
+        // the resulting rollback also gives the reserved seat back
+        try {
+            this.sessionRepository.addParticipant(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException();
+        }
 
-        this.sessionRepository.save(session);
+        this.waitlistRepository.removeEntry(id, userId);
+        catalogueChanged(id);
     }
 
+    @Transactional
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
+        if (!this.sessionRepository.existsById(id)) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+        if (this.sessionRepository.removeParticipant(id, userId) == 0) {
             throw new BadRequestException();
         }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+        this.sessionRepository.releaseSeat(id);
+        promoteFromWaitlist(id);
+        catalogueChanged(id);
+    }
+
+    /**
+     * Returns the participants of a session in user id order, starting after the given user id.
+     */
+    public List<User> findParticipants(Long id, Long afterUserId, int limit) {
+        return this.userRepository.findParticipants(id, afterUserId != null ? afterUserId : 0L, PageRequest.of(0, limit));
+    }
+
+    public List<Long> getWaitlist(Long id) {
+        if (!this.sessionRepository.existsById(id)) {
+            throw new NotFoundException();
+        }
+
+        return this.waitlistRepository.findBySessionIdOrderByIdAsc(id).stream()
+                .map(WaitlistEntry::getUserId)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void joinWaitlist(Long id, Long userId) {
+        // Locked like the seat updates, so a concurrent leave promotes either before or after this entry
+        Session session = this.sessionRepository.findForUpdateById(id).orElse(null);
+        if (session == null || !this.userRepository.existsById(userId)) {
+            throw new NotFoundException();
+        }
+
+        boolean full = session.getCapacity() != null && session.getParticipantCount() >= session.getCapacity();
+        if (!full || this.sessionRepository.countParticipant(id, userId) > 0) {
+            throw new BadRequestException();
+        }
+
+        try {
+            this.waitlistRepository.saveAndFlush(WaitlistEntry.builder().sessionId(id).userId(userId).build());
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    @Transactional
+    public void leaveWaitlist(Long id, Long userId) {
+        if (!this.sessionRepository.existsById(id)) {
+            throw new NotFoundException();
+        }
+
+        if (this.waitlistRepository.removeEntry(id, userId) == 0) {
+            throw new BadRequestException();
+        }
+    }
+
+    // Tells why a conditional update matched no row
+    private RuntimeException updateRejected(Long id, Integer capacity) {
+        Session current = this.sessionRepository.findById(id).orElse(null);
+        if (current == null) {
+            return new NotFoundException();
+        }
+        if (capacity != null && current.getParticipantCount() != null && current.getParticipantCount() > capacity) {
+            return new ConflictException(OVERBOOKED);
+        }
+
+        return new ConflictException();
+    }
 
-        this.sessionRepository.save(session);
+    /**
+     * Tells whether a session to create lists more participants than its capacity allows.
+     */
+    public static boolean isOverbooked(Session session) {
+        return session.getCapacity() != null && session.getUsers() != null
+                && session.getUsers().size() > session.getCapacity();
+    }
+
+    private static void putIfPresent(Map<String, Object> changes, String attribute, Object value) {
+        if (value != null) {
+            changes.put(attribute, value);
+        }
+    }
+
+    // Runs under the session row lock; entries of users who joined directly meanwhile are dropped
+    private void promoteFromWaitlist(Long id) {
+        Optional<WaitlistEntry> head = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(id);
+        while (head.isPresent()) {
+            WaitlistEntry entry = head.get();
+            if (this.sessionRepository.countParticipant(id, entry.getUserId()) == 0) {
+                if (this.sessionRepository.reserveSeat(id) == 0) {
+                    return;
+                }
+                this.sessionRepository.addParticipant(id, entry.getUserId());
+            }
+
+            this.waitlistRepository.delete(entry);
+            head = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(id);
+        }
+    }
+
+    private boolean isExpired(SessionCatalogue catalogue) {
+        return this.catalogueMaxAgeMs > 0 && System.currentTimeMillis() - catalogue.getBuiltAt() >= this.catalogueMaxAgeMs;
+    }
+
+    // The version is read before loading so that a write committing mid-build leaves the result stale
+    private SessionCatalogue buildCatalogue(SessionCatalogue previous) {
+        this.changedIds.clear();
+        long version = this.writeVersion.get();
+        LocalDateTime writtenAt = this.lastWriteAt;
+
+        List<SessionDto> sessions = this.sessionMapper.toDto(this.sessionRepository.findAll());
+
+        // Sessions deleted around this instance show up as missing rows only
+        if (previous != null) {
+            Set<Long> loadedIds = sessions.stream().map(SessionDto::getId).collect(Collectors.toSet());
+            if (previous.getSessions().stream().anyMatch(session -> !loadedIds.contains(session.getId()))) {
+                writtenAt = LocalDateTime.now();
+                this.lastWriteAt = writtenAt;
+            }
+        }
+
+        return new SessionCatalogue(version, writtenAt, sessions);
+    }
+
+    // Writes mark their session before bumping the version, so draining after reading it misses none
+    private SessionCatalogue applyChanges(SessionCatalogue current) {
+        long version = this.writeVersion.get();
+        LocalDateTime writtenAt = this.lastWriteAt;
+
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = this.changedIds.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+
+        List<SessionDto> refreshed = ids.isEmpty()
+                ? Collections.emptyList()
+                : this.sessionMapper.toDto(this.sessionRepository.findAllById(ids));
+
+        return current.withChanges(version, writtenAt, ids, refreshed);
+    }
+
+    private void catalogueChanged(Long id) {
+        catalogueChanged(Collections.singletonList(id));
+    }
+
+    private void catalogueChanged(Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markChanged(ids);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                markChanged(ids);
+            }
+        });
+    }
+
+    private void markChanged(Collection<Long> ids) {
+        if (this.catalogueEnabled) {
+            this.changedIds.addAll(ids);
+        }
+        this.lastWriteAt = LocalDateTime.now();
+        this.writeVersion.incrementAndGet();
     }
 }
@@ -2,23 +2,123 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    private final long refreshIntervalMs;
+
+    // Teachers are read on every session write but almost never change, so all of them are kept
+    // in memory and reloaded every refreshIntervalMs or after invalidate(). Zero disables caching.
+    private volatile Snapshot snapshot;
+
+    public TeacherService(TeacherRepository teacherRepository,
+                          @Value("${oc.app.teacherCacheRefreshMs:300000}") long refreshIntervalMs) {
         this.teacherRepository = teacherRepository;
+        this.refreshIntervalMs = refreshIntervalMs;
     }
 
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        if (refreshIntervalMs <= 0) {
+            return this.teacherRepository.findAll();
+        }
+
+        return snapshot().teachers;
     }
 
     public Teacher findById(Long id) {
-        return this.teacherRepository.findById(id).orElse(null);
+        if (refreshIntervalMs <= 0) {
+            return this.teacherRepository.findById(id).orElse(null);
+        }
+
+        Teacher teacher = snapshot().teachersById.get(id);
+        if (teacher == null) {
+            // Added since the last load: answer from the database and reload on the next read
+            teacher = this.teacherRepository.findById(id).orElse(null);
+            if (teacher != null) {
+                invalidate();
+            }
+        }
+
+        return teacher;
+    }
+
+    /**
+     * Looks up several teachers at once, with at most one query for those missing from the snapshot.
+     * Unknown ids are absent from the returned map.
+     */
+    public Map<Long, Teacher> findAllById(Collection<Long> ids) {
+        Map<Long, Teacher> found = new HashMap<>();
+        Set<Long> missing = new HashSet<>(ids);
+
+        if (refreshIntervalMs > 0) {
+            Map<Long, Teacher> cached = snapshot().teachersById;
+            missing.removeIf(id -> {
+                Teacher teacher = cached.get(id);
+                if (teacher != null) {
+                    found.put(id, teacher);
+                }
+                return teacher != null;
+            });
+        }
+
+        if (!missing.isEmpty()) {
+            List<Teacher> loaded = this.teacherRepository.findAllById(missing);
+            loaded.forEach(teacher -> found.put(teacher.getId(), teacher));
+            if (refreshIntervalMs > 0 && !loaded.isEmpty()) {
+                invalidate();
+            }
+        }
+
+        return found;
+    }
+
+    public void invalidate() {
+        this.snapshot = null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = this.snapshot;
+        if (current != null && !current.isExpired(refreshIntervalMs)) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = this.snapshot;
+            if (current == null || current.isExpired(refreshIntervalMs)) {
+                current = new Snapshot(this.teacherRepository.findAll());
+                this.snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private static final class Snapshot {
+        private final List<Teacher> teachers;
+        private final Map<Long, Teacher> teachersById;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Snapshot(List<Teacher> teachers) {
+            Map<Long, Teacher> byId = new LinkedHashMap<>();
+            teachers.forEach(teacher -> byId.put(teacher.getId(), teacher));
+            this.teachers = Collections.unmodifiableList(teachers);
+            this.teachersById = Collections.unmodifiableMap(byId);
+        }
+
+        private boolean isExpired(long refreshIntervalMs) {
+            return System.currentTimeMillis() - loadedAt >= refreshIntervalMs;
+        }
     }
 }
@@ -2,21 +2,51 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.VersionStamp;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationRegistry;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final UserDetailsCache userDetailsCache;
+
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+
+    public UserService(UserRepository userRepository, UserDetailsCache userDetailsCache, TokenRevocationRegistry tokenRevocationRegistry) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
     }
 
     public void delete(Long id) {
         this.userRepository.deleteById(id);
+        this.userDetailsCache.evictById(id);
+        this.tokenRevocationRegistry.revoke(id);
     }
 
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    public boolean existsById(Long id) {
+        return this.userRepository.existsById(id);
+    }
+
+    /**
+     * Reads only the version and modification time, so conditional requests can be answered
+     * without loading the user.
+     */
+    public VersionStamp findVersionStampById(Long id) {
+        return this.userRepository.findVersionStampById(id).orElse(null);
+    }
+
+    public List<User> findAllById(Collection<Long> ids) {
+        return this.userRepository.findAllById(ids);
+    }
 }
@@ -1,3 +1,4 @@
+DELETE FROM WAITLIST;
 DELETE FROM PARTICIPATE;
 DELETE FROM SESSIONS;
 DELETE FROM USERS;
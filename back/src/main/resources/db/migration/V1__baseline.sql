@@ -1,4 +1,5 @@
-CREATE TABLE IF NOT EXISTS `TEACHERS` (
+-- Schema as first released; existing databases are baselined at this version
+CREATE TABLE `TEACHERS` (
   `id` INT PRIMARY KEY AUTO_INCREMENT,
   `last_name` VARCHAR(40),
   `first_name` VARCHAR(40),
@@ -6,7 +7,7 @@ CREATE TABLE IF NOT EXISTS `TEACHERS` (
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
-CREATE TABLE IF NOT EXISTS `SESSIONS` (
+CREATE TABLE `SESSIONS` (
   `id` INT PRIMARY KEY AUTO_INCREMENT,
   `name` VARCHAR(50),
   `description` VARCHAR(2000),
@@ -16,7 +17,7 @@ CREATE TABLE IF NOT EXISTS `SESSIONS` (
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
-CREATE TABLE IF NOT EXISTS `USERS` (
+CREATE TABLE `USERS` (
   `id` INT PRIMARY KEY AUTO_INCREMENT,
   `last_name` VARCHAR(40),
   `first_name` VARCHAR(40),
@@ -27,8 +28,8 @@ CREATE TABLE IF NOT EXISTS `USERS` (
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
-CREATE TABLE IF NOT EXISTS `PARTICIPATE` (
-  `user_id` INT, 
+CREATE TABLE `PARTICIPATE` (
+  `user_id` INT,
   `session_id` INT
 );
 
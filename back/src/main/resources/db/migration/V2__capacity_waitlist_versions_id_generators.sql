@@ -0,0 +1,30 @@
+ALTER TABLE `SESSIONS` ADD COLUMN `capacity` INT;
+ALTER TABLE `SESSIONS` ADD COLUMN `participant_count` INT NOT NULL DEFAULT 0;
+UPDATE `SESSIONS` SET `participant_count` =
+  (SELECT COUNT(DISTINCT `user_id`) FROM `PARTICIPATE` WHERE `session_id` = `SESSIONS`.`id`);
+
+ALTER TABLE `TEACHERS` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE `SESSIONS` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE `USERS` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE `WAITLIST` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT `UK_WAITLIST_SESSION_USER` UNIQUE (`session_id`, `user_id`)
+);
+
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`) ON DELETE CASCADE;
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`) ON DELETE CASCADE;
+
+-- Ids of TEACHERS, SESSIONS and USERS are handed out by the application in blocks of 50,
+-- each counter starting after the highest existing id
+CREATE TABLE `ID_GENERATORS` (
+  `name` VARCHAR(64) PRIMARY KEY,
+  `next_val` BIGINT NOT NULL
+);
+
+INSERT INTO `ID_GENERATORS` (`name`, `next_val`) SELECT 'TEACHERS', COALESCE(MAX(`id`), 0) + 1 FROM `TEACHERS`;
+INSERT INTO `ID_GENERATORS` (`name`, `next_val`) SELECT 'SESSIONS', COALESCE(MAX(`id`), 0) + 1 FROM `SESSIONS`;
+INSERT INTO `ID_GENERATORS` (`name`, `next_val`) SELECT 'USERS', COALESCE(MAX(`id`), 0) + 1 FROM `USERS`;
@@ -0,0 +1,26 @@
+-- PARTICIPATE is rebuilt rather than altered so that duplicate or half-empty rows left by the
+-- original schema are dropped and the composite key can be declared portably
+CREATE TABLE `PARTICIPATE_NEW` (
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  CONSTRAINT `PK_PARTICIPATE` PRIMARY KEY (`session_id`, `user_id`)
+);
+
+INSERT INTO `PARTICIPATE_NEW` (`session_id`, `user_id`)
+SELECT DISTINCT `session_id`, `user_id` FROM `PARTICIPATE`
+WHERE `session_id` IS NOT NULL AND `user_id` IS NOT NULL;
+
+DROP TABLE `PARTICIPATE`;
+ALTER TABLE `PARTICIPATE_NEW` RENAME TO `PARTICIPATE`;
+
+-- Sessions of a user (the key only serves lookups by session)
+CREATE INDEX `IDX_PARTICIPATE_USER` ON `PARTICIPATE` (`user_id`);
+ALTER TABLE `PARTICIPATE` ADD CONSTRAINT `FK_PARTICIPATE_SESSION` FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `PARTICIPATE` ADD CONSTRAINT `FK_PARTICIPATE_USER` FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+
+-- Keyset pagination orders by (date, id), optionally within one teacher
+CREATE INDEX `IDX_SESSIONS_DATE_ID` ON `SESSIONS` (`date`, `id`);
+CREATE INDEX `IDX_SESSIONS_TEACHER_DATE_ID` ON `SESSIONS` (`teacher_id`, `date`, `id`);
+
+-- Every authenticated request resolves its user by email
+CREATE UNIQUE INDEX `UK_USERS_EMAIL` ON `USERS` (`email`);
@@ -0,0 +1,2 @@
+-- Bumped to revoke every self-contained token issued to the user so far
+ALTER TABLE `USERS` ADD COLUMN `token_version` INT NOT NULL DEFAULT 0;
@@ -0,0 +1,26 @@
+package com.openclassrooms.starterjwt;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Turns the in-memory caches off for test classes that write straight to the database, where a
+ * cached entry would hide the change. Every class carrying it shares the same application context.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@TestPropertySource(properties = {
+        "oc.app.userDetailsCacheTtlMs=0",
+        "oc.app.teacherCacheRefreshMs=0",
+        "oc.app.sessionCatalogueEnabled=false"
+})
+public @interface CachesDisabled {
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("EncodedResponseCache Tests")
+public class EncodedResponseCacheTest {
+
+    private final EncodedResponseCache cache = new EncodedResponseCache(new ObjectMapper(), 10, 60000L);
+
+    @Test
+    @DisplayName("Should encode a source once and reuse it until another instance is given")
+    void shouldReuseEncodingForSameSource() {
+        List<String> source = List.of("a", "b");
+        AtomicInteger encodings = new AtomicInteger();
+
+        EncodedJson first = cache.get("key", source, () -> { encodings.incrementAndGet(); return source; });
+        EncodedJson second = cache.get("key", source, () -> { encodings.incrementAndGet(); return source; });
+        EncodedJson third = cache.get("key", List.of("a", "b"), () -> { encodings.incrementAndGet(); return source; });
+
+        assertThat(second).isSameAs(first);
+        assertThat(third).isNotSameAs(first);
+        assertThat(encodings.get()).isEqualTo(2);
+        assertThat(new String(first.getJson(), StandardCharsets.UTF_8)).isEqualTo("[\"a\",\"b\"]");
+    }
+
+    @Test
+    @DisplayName("Should serve the gzip variant only when the client accepts it")
+    void shouldServeGzipWhenAccepted() throws IOException {
+        EncodedJson encoded = cache.get("key", "source", () -> List.of("a"));
+
+        ResponseEntity<byte[]> plain = encoded.toResponse("identity");
+        ResponseEntity<byte[]> gzipped = encoded.toResponse("gzip, deflate, br");
+
+        assertThat(plain.getHeaders().getFirst("Content-Encoding")).isNull();
+        assertThat(plain.getBody()).isEqualTo(encoded.getJson());
+        assertThat(gzipped.getHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders().getFirst("Vary")).isEqualTo("Accept-Encoding");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertThat(in.readAllBytes()).isEqualTo(encoded.getJson());
+        }
+    }
+
+    @Test
+    @DisplayName("Should tag equal bodies alike and keep the gzip representation distinct")
+    void shouldDeriveEtagFromContent() {
+        EncodedJson encoded = cache.get("key", "source", () -> List.of("a"));
+        EncodedJson same = cache.get("other", "other source", () -> List.of("a"));
+        EncodedJson changed = cache.get("key", "changed source", () -> List.of("b"));
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+        ResponseEntity<byte[]> plain = encoded.toResponse(null, updatedAt);
+        ResponseEntity<byte[]> gzipped = encoded.toResponse("gzip", updatedAt);
+
+        assertThat(same.getEtag()).isEqualTo(encoded.getEtag());
+        assertThat(changed.getEtag()).isNotEqualTo(encoded.getEtag());
+        assertThat(plain.getHeaders().getETag()).isEqualTo("\"" + encoded.getEtag() + "\"");
+        assertThat(gzipped.getHeaders().getETag()).isNotEqualTo(plain.getHeaders().getETag());
+        assertThat(plain.getHeaders().getLastModified())
+                .isEqualTo(updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Test
+    @DisplayName("Should reuse a versioned body until the version changes and tag it with the version")
+    void shouldKeyVersionedBodiesByVersion() {
+        AtomicInteger encodings = new AtomicInteger();
+
+        EncodedJson first = cache.getVersioned("session/1", 3L, () -> { encodings.incrementAndGet(); return List.of("a"); });
+        EncodedJson second = cache.getVersioned("session/1", 3L, () -> { encodings.incrementAndGet(); return List.of("a"); });
+        EncodedJson bumped = cache.getVersioned("session/1", 4L, () -> { encodings.incrementAndGet(); return List.of("b"); });
+
+        assertThat(second).isSameAs(first);
+        assertThat(bumped).isNotSameAs(first);
+        assertThat(encodings.get()).isEqualTo(2);
+        assertThat(first.toResponse(null).getHeaders().getETag()).isEqualTo("\"v3\"");
+        assertThat(bumped.toResponse("gzip").getHeaders().getETag()).isEqualTo("\"v4-gzip\"");
+    }
+}
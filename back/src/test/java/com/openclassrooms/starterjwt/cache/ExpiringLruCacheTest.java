@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ExpiringLruCache Tests")
+public class ExpiringLruCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000L);
+
+    @Test
+    @DisplayName("Should return stored values until they expire")
+    void shouldExpireEntriesAfterTtl() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, 100L, now::get);
+        cache.put("a", "A");
+
+        now.addAndGet(99L);
+        assertThat(cache.get("a")).isEqualTo("A");
+
+        now.addAndGet(1L);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should expire entries at the given deadline when it is before the TTL")
+    void shouldHonourExplicitDeadline() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, 100L, now::get);
+        cache.putUntil("a", "A", now.get() + 10L);
+        cache.putUntil("b", "B", now.get() + 1000L);
+
+        now.addAndGet(10L);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo("B");
+
+        now.addAndGet(90L);
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should drop the least recently used entry when full")
+    void shouldEvictLeastRecentlyUsed() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, 100L, now::get);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("C");
+    }
+
+    @Test
+    @DisplayName("Should remove entries matching a predicate")
+    void shouldRemoveMatchingEntries() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, 100L, now::get);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        cache.removeIf(value -> value == 2);
+
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should store nothing when the TTL is zero")
+    void shouldStayEmptyWhenDisabled() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, 0L, now::get);
+        cache.put("a", "A");
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.get("a")).isNull();
+    }
+}
@@ -1,8 +1,11 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.CachesDisabled;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,17 +15,23 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
+@CachesDisabled
 @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @DisplayName("AuthController Integration Tests")
 public class AuthControllerITTest {
@@ -36,6 +45,9 @@ public class AuthControllerITTest {
         @Autowired
         private PasswordEncoder passwordEncoder;
 
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
         @BeforeEach
         void setup() {
                 SecurityContextHolder.clearContext();
@@ -76,6 +88,43 @@ public class AuthControllerITTest {
                         .andExpect(jsonPath("$.admin").value(false));
         }
 
+        @Test
+        void testLoginIssuesSingleUserQuery() throws Exception {
+                String json = "{"
+                        + "\"email\":\"test@test.fr\","
+                        + "\"password\":\"password123\""
+                        + "}";
+                Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                statistics.clear();
+
+                mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                        .andExpect(status().isOk());
+
+                assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        }
+
+        @Test
+        void testLoginUpgradesWeakerPasswordHash() throws Exception {
+                User user = userRepository.findByEmail("test@test.fr").orElseThrow();
+                user.setPassword(new BCryptPasswordEncoder(4).encode("password123"));
+                userRepository.save(user);
+                String json = "{"
+                        + "\"email\":\"test@test.fr\","
+                        + "\"password\":\"password123\""
+                        + "}";
+
+                mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                        .andExpect(status().isOk());
+
+                String upgraded = userRepository.findByEmail("test@test.fr").orElseThrow().getPassword();
+                assertThat(upgraded).startsWith("$2a$05$");
+                assertThat(passwordEncoder.matches("password123", upgraded)).isTrue();
+        }
+
         @Test
         void testLoginBadPassword() throws Exception {
                 String json = "{"
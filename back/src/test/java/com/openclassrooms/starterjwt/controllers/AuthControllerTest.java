@@ -21,8 +21,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.Optional;
-
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -67,6 +65,7 @@ class AuthControllerTest {
                 .username("test@test.fr")
                 .firstName("Jean")
                 .lastName("Dupont")
+                .admin(false)
                 .password("password123")
                 .build();
     }
@@ -82,7 +81,6 @@ class AuthControllerTest {
                 .thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(userDetails);
         when(jwtUtils.generateJwtToken(authentication)).thenReturn("jwt-token-123");
-        when(userRepository.findByEmail("test@test.fr")).thenReturn(Optional.of(testUser));
 
         ResponseEntity<?> response = authController.authenticateUser(loginRequest);
 
@@ -104,23 +102,18 @@ class AuthControllerTest {
         loginRequest.setEmail("test@test.fr");
         loginRequest.setPassword("password123");
 
-        User testAdmin = new User();
-        testAdmin.setId(2L);
-        testAdmin.setEmail("test@test.fr");
-        testAdmin.setAdmin(true);
-
         UserDetailsImpl adminDetails = UserDetailsImpl.builder()
                 .id(2L)
                 .username("test@test.fr")
                 .firstName("Jean")
                 .lastName("Dupont")
+                .admin(true)
                 .build();
 
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(adminDetails);
         when(jwtUtils.generateJwtToken(authentication)).thenReturn("admin-jwt-token");
-        when(userRepository.findByEmail("test@test.fr")).thenReturn(Optional.of(testAdmin));
 
         ResponseEntity<?> response = authController.authenticateUser(loginRequest);
 
@@ -131,22 +124,27 @@ class AuthControllerTest {
     }
 
     @Test
-    @DisplayName("Should handle user not found in database during login")
-    void shouldHandleUserNotFoundInDatabaseDuringLogin() {
+    @DisplayName("Should default admin flag to false when the principal carries none")
+    void shouldDefaultAdminFlagToFalseWhenPrincipalCarriesNone() {
         LoginRequest loginRequest = new LoginRequest();
         loginRequest.setEmail("test@test.fr");
         loginRequest.setPassword("password");
 
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.fr")
+                .build();
+
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
-        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(authentication.getPrincipal()).thenReturn(principal);
         when(jwtUtils.generateJwtToken(authentication)).thenReturn("jwt-token");
-        when(userRepository.findByEmail("test@test.fr")).thenReturn(Optional.empty());
 
         ResponseEntity<?> response = authController.authenticateUser(loginRequest);
 
         JwtResponse jwtResponse = (JwtResponse) response.getBody();
         assertThat(jwtResponse.getAdmin()).isFalse();
+        verify(userRepository, never()).findByEmail(any());
     }
 
     @Test
@@ -0,0 +1,200 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs the session endpoints with the catalogue enabled, as in production.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = "oc.app.sessionCatalogueMaxAgeMs=1000")
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@DisplayName("Session catalogue Integration Tests")
+public class SessionCatalogueITTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User testUser;
+
+    private Teacher testTeacher;
+
+    private Session session;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Cached user details are keyed by email, so every test logs in as a user of its own
+        String email = UUID.randomUUID() + "@test.fr";
+        testUser = userRepository.save(User.builder()
+                .email(email)
+                .firstName("Jean")
+                .lastName("Dupont")
+                .password(passwordEncoder.encode("password123"))
+                .admin(false)
+                .build());
+        testTeacher = teacherRepository.save(Teacher.builder()
+                .firstName("Pierre")
+                .lastName("Martin")
+                .build());
+        session = sessionRepository.save(Session.builder()
+                .name("Yoga Friday")
+                .description("Friday session")
+                .date(new Date())
+                .teacher(testTeacher)
+                .users(new ArrayList<>())
+                .build());
+
+        // The rows above were written around the service, as was the cleanup of the previous test
+        sessionService.invalidateCatalogue();
+        token = TokenGenerator.getAuthToken(mockMvc, email, "password123");
+    }
+
+    @Test
+    void testListAndDetailFollowWrites() throws Exception {
+        mockMvc.perform(get("/api/session").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        String created = mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", token)
+                        .content(sessionJson("Yoga Débutant")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer createdId = JsonPath.read(created, "$.id");
+
+        mockMvc.perform(get("/api/session").header("Authorization", token))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].name").value("Yoga Débutant"));
+
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                        .header("Authorization", token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session/" + session.getId()).header("Authorization", token))
+                .andExpect(jsonPath("$.users", contains(testUser.getId().intValue())));
+
+        mockMvc.perform(put("/api/session/" + session.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", token)
+                        .content(sessionJson("Yoga Updated")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session").header("Authorization", token))
+                .andExpect(jsonPath("$[0].name").value("Yoga Updated"));
+
+        mockMvc.perform(delete("/api/session/" + createdId).header("Authorization", token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session").header("Authorization", token))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(session.getId()));
+        mockMvc.perform(get("/api/session/" + createdId).header("Authorization", token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testListLastModifiedMovesForwardOnDelete() throws Exception {
+        String created = mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", token)
+                        .content(sessionJson("Yoga Débutant")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer createdId = JsonPath.read(created, "$.id");
+
+        String lastModified = mockMvc.perform(get("/api/session").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Last-Modified");
+
+        // Last-Modified only has a one second resolution
+        Thread.sleep(1100);
+        mockMvc.perform(delete("/api/session/" + createdId).header("Authorization", token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", token)
+                        .header("If-Modified-Since", lastModified))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void testPicksUpOutsideWritesOnceExpired() throws Exception {
+        mockMvc.perform(get("/api/session/" + session.getId()).header("Authorization", token))
+                .andExpect(jsonPath("$.name").value("Yoga Friday"));
+
+        // As another instance would: the write goes to the database without this one hearing of it
+        jdbcTemplate.update("UPDATE SESSIONS SET name = ?, version = version + 1 WHERE id = ?", "Renamed elsewhere", session.getId());
+
+        mockMvc.perform(get("/api/session/" + session.getId()).header("Authorization", token))
+                .andExpect(jsonPath("$.name").value("Yoga Friday"));
+
+        Thread.sleep(1100);
+
+        mockMvc.perform(get("/api/session/" + session.getId()).header("Authorization", token))
+                .andExpect(jsonPath("$.name").value("Renamed elsewhere"));
+        mockMvc.perform(get("/api/session").header("Authorization", token))
+                .andExpect(jsonPath("$[0].name").value("Renamed elsewhere"));
+    }
+
+    private String sessionJson(String name) {
+        return "{"
+                + "\"name\":\"" + name + "\","
+                + "\"date\":\"2025-12-10\","
+                + "\"teacher_id\":" + testTeacher.getId() + ","
+                + "\"description\":\"Session de yoga\""
+                + "}";
+    }
+}
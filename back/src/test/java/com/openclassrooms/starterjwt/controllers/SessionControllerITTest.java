@@ -1,5 +1,6 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.CachesDisabled;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
@@ -7,6 +8,8 @@ import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -15,20 +18,30 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.jayway.jsonpath.JsonPath;
+
+import javax.persistence.EntityManagerFactory;
 
 import java.util.ArrayList;
+import java.util.Date;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
+@CachesDisabled
 @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @DisplayName("SessionController Integration Tests")
 public class SessionControllerITTest {
@@ -48,6 +61,12 @@ public class SessionControllerITTest {
         @Autowired
         private PasswordEncoder passwordEncoder;
 
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
         private Session session;
 
         private User testUser;
@@ -108,6 +127,44 @@ public class SessionControllerITTest {
                 .andExpect(jsonPath("$.name").value("Yoga Friday"));
         }
 
+        @Test
+        void testFindByIdConditionalRequest() throws Exception {
+                String etag = mockMvc.perform(get("/api/session/" + session.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(header().exists("Last-Modified"))
+                        .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/session/" + session.getId())
+                                .header("Authorization", token)
+                                .header("If-None-Match", etag))
+                        .andExpect(status().isNotModified())
+                        .andExpect(header().string("ETag", etag));
+
+                mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                mockMvc.perform(get("/api/session/" + session.getId())
+                                .header("Authorization", token)
+                                .header("If-None-Match", etag))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+        }
+
+        @Test
+        void testFindAllConditionalRequest() throws Exception {
+                String etag = mockMvc.perform(get("/api/session")
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/session")
+                                .header("Authorization", token)
+                                .header("If-None-Match", etag))
+                        .andExpect(status().isNotModified());
+        }
+
         @Test
         void testFindByIdInvalidId() throws Exception {
         mockMvc.perform(get("/api/session/invalid")
@@ -123,6 +180,197 @@ public class SessionControllerITTest {
                 .andExpect(jsonPath("$").isArray());
         }
 
+        @Test
+        void testFindSessionPages() throws Exception {
+                for (int i = 1; i <= 3; i++) {
+                        sessionRepository.save(Session.builder()
+                                .name("Yoga Day " + i)
+                                .description("Session " + i)
+                                .date(new Date(session.getDate().getTime() + i * 86_400_000L))
+                                .teacher(testTeacher)
+                                .users(new ArrayList<>())
+                                .build());
+                }
+
+                MvcResult first = mockMvc.perform(get("/api/session/page")
+                                .param("size", "2")
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions.length()").value(2))
+                        .andExpect(jsonPath("$.sessions[0].name").value("Yoga Friday"))
+                        .andExpect(jsonPath("$.sessions[1].name").value("Yoga Day 1"))
+                        .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                        .andReturn();
+
+                String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+                mockMvc.perform(get("/api/session/page")
+                                .param("size", "2")
+                                .param("cursor", cursor)
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions.length()").value(2))
+                        .andExpect(jsonPath("$.sessions[0].name").value("Yoga Day 2"))
+                        .andExpect(jsonPath("$.sessions[1].name").value("Yoga Day 3"))
+                        .andExpect(jsonPath("$.nextCursor").isEmpty());
+        }
+
+        @Test
+        void testFindSessionPageFilteredByTeacher() throws Exception {
+                mockMvc.perform(get("/api/session/page")
+                                .param("teacherId", String.valueOf(testTeacher.getId()))
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions.length()").value(1));
+
+                mockMvc.perform(get("/api/session/page")
+                                .param("teacherId", "9999")
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions.length()").value(0));
+        }
+
+        @Test
+        void testFindSessionPageInvalidCursor() throws Exception {
+                mockMvc.perform(get("/api/session/page")
+                                .param("cursor", "not-a-cursor")
+                                .header("Authorization", token))
+                        .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void testFindSessionPageSummarisesParticipants() throws Exception {
+                addParticipants(3);
+
+                mockMvc.perform(get("/api/session/page")
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions[0].participantCount").value(3))
+                        .andExpect(jsonPath("$.sessions[0].currentUserParticipates").value(false))
+                        .andExpect(jsonPath("$.sessions[0].users").doesNotExist());
+
+                jdbcTemplate.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (?, ?)",
+                        session.getId(), testUser.getId());
+
+                mockMvc.perform(get("/api/session/page")
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions[0].participantCount").value(4))
+                        .andExpect(jsonPath("$.sessions[0].currentUserParticipates").value(true));
+        }
+
+        @Test
+        void testFindParticipantsPagesTheRoster() throws Exception {
+                addParticipants(3);
+                String adminToken = adminToken();
+
+                MvcResult first = mockMvc.perform(get("/api/session/" + session.getId() + "/participants")
+                                .param("size", "2")
+                                .header("Authorization", adminToken))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users.length()").value(2))
+                        .andExpect(jsonPath("$.users[0].firstName").value("Jean"))
+                        .andExpect(jsonPath("$.users[0].password").doesNotExist())
+                        .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                        .andReturn();
+
+                String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+                mockMvc.perform(get("/api/session/" + session.getId() + "/participants")
+                                .param("size", "2")
+                                .param("cursor", cursor)
+                                .header("Authorization", adminToken))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users.length()").value(1))
+                        .andExpect(jsonPath("$.nextCursor").isEmpty());
+        }
+
+        @Test
+        void testFindParticipantsIsOneQueryPerPage() throws Exception {
+                String adminToken = adminToken();
+                addParticipants(1);
+                long rosterWithOneParticipant = countStatements("/api/session/" + session.getId() + "/participants", adminToken);
+
+                addParticipants(20);
+                long rosterWithManyParticipants = countStatements("/api/session/" + session.getId() + "/participants", adminToken);
+
+                assertThat(rosterWithManyParticipants).isEqualTo(rosterWithOneParticipant);
+        }
+
+        @Test
+        void testFindParticipantsSessionNotFound() throws Exception {
+                mockMvc.perform(get("/api/session/9999/participants")
+                                .header("Authorization", adminToken()))
+                        .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void testFindParticipantsRequiresAdmin() throws Exception {
+                addParticipants(1);
+
+                mockMvc.perform(get("/api/session/" + session.getId() + "/participants")
+                                .header("Authorization", token))
+                        .andExpect(status().isUnauthorized());
+        }
+
+        @Test
+        void testListStatementCountIndependentOfParticipants() throws Exception {
+                addParticipants(1);
+                long listWithOneParticipant = countStatements("/api/session");
+                long pageWithOneParticipant = countStatements("/api/session/page");
+
+                addParticipants(20);
+                long listWithManyParticipants = countStatements("/api/session");
+                long pageWithManyParticipants = countStatements("/api/session/page");
+
+                // user lookup + sessions + teacher + participant ids
+                assertThat(listWithOneParticipant).isLessThanOrEqualTo(4);
+                assertThat(listWithManyParticipants).isEqualTo(listWithOneParticipant);
+                assertThat(pageWithManyParticipants).isEqualTo(pageWithOneParticipant);
+        }
+
+        private void addParticipants(int count) {
+                long existing = userRepository.count();
+                for (int i = 0; i < count; i++) {
+                        User participant = userRepository.save(User.builder()
+                                .email("participant" + (existing + i) + "@test.fr")
+                                .firstName("Jean")
+                                .lastName("Dupont")
+                                .password("password123")
+                                .admin(false)
+                                .build());
+                        jdbcTemplate.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (?, ?)",
+                                session.getId(), participant.getId());
+                }
+        }
+
+        private String adminToken() throws Exception {
+                userRepository.save(User.builder()
+                        .email("admin@test.fr")
+                        .firstName("Admin")
+                        .lastName("Admin")
+                        .password(passwordEncoder.encode("password123"))
+                        .admin(true)
+                        .build());
+
+                return TokenGenerator.getAuthToken(mockMvc, "admin@test.fr", "password123");
+        }
+
+        private long countStatements(String path) throws Exception {
+                return countStatements(path, token);
+        }
+
+        private long countStatements(String path, String authToken) throws Exception {
+                Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                statistics.clear();
+
+                mockMvc.perform(get(path)
+                                .header("Authorization", authToken))
+                        .andExpect(status().isOk());
+
+                return statistics.getPrepareStatementCount();
+        }
+
         @Test
         void testCreateSession() throws Exception {
                 String json = "{"
@@ -142,6 +390,175 @@ public class SessionControllerITTest {
                         .andExpect(jsonPath("$.teacher_id").value(testTeacher.getId()));
         }
 
+        @Test
+        void testCreateSessionWithDuplicateUsers() throws Exception {
+                String json = "{"
+                        + "\"name\":\"Yoga\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Cours\","
+                        + "\"users\":[" + testUser.getId() + "," + testUser.getId() + "]"
+                        + "}";
+
+                mockMvc.perform(post("/api/session")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content(json))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users.length()").value(1))
+                        .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+        }
+
+        @Test
+        void testCreateSessionOverbookedIsRejected() throws Exception {
+                long before = sessionRepository.count();
+                User other = userRepository.save(User.builder()
+                        .email("other@test.fr")
+                        .firstName("Marie")
+                        .lastName("Durand")
+                        .password(passwordEncoder.encode("password123"))
+                        .admin(false)
+                        .build());
+                String item = "{"
+                        + "\"name\":\"Yoga\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Cours\","
+                        + "\"capacity\":%d,"
+                        + "\"users\":[" + testUser.getId() + "," + other.getId() + "]"
+                        + "}";
+
+                mockMvc.perform(post("/api/session")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content(String.format(item, 1)))
+                        .andExpect(status().isConflict());
+
+                mockMvc.perform(post("/api/session/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("[" + String.format(item, 2) + "," + String.format(item, 1) + "]"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.errors.length()").value(1))
+                        .andExpect(jsonPath("$.errors[0].index").value(1))
+                        .andExpect(jsonPath("$.errors[0].messages[0]").value("capacity is below the number of participants"));
+
+                assertThat(sessionRepository.count()).isEqualTo(before);
+        }
+
+        @Test
+        void testCreateSessionsInBulk() throws Exception {
+                long before = sessionRepository.count();
+                String item = "{"
+                        + "\"name\":\"Yoga %d\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Cours %d\","
+                        + "\"users\":[" + testUser.getId() + "]"
+                        + "}";
+
+                mockMvc.perform(post("/api/session/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("[" + String.format(item, 1, 1) + "," + String.format(item, 2, 2) + "]"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions.length()").value(2))
+                        .andExpect(jsonPath("$.sessions[1].name").value("Yoga 2"))
+                        .andExpect(jsonPath("$.sessions[1].users[0]").value(testUser.getId()))
+                        .andExpect(jsonPath("$.errors").isEmpty());
+
+                assertThat(sessionRepository.count()).isEqualTo(before + 2);
+                assertThat(jdbcTemplate.queryForObject("SELECT MAX(participant_count) FROM SESSIONS", Integer.class)).isEqualTo(1);
+        }
+
+        @Test
+        void testCreateSessionsInBulkIsAllOrNothing() throws Exception {
+                long before = sessionRepository.count();
+                String valid = "{"
+                        + "\"name\":\"Yoga\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Cours\""
+                        + "}";
+                String unknownTeacher = valid.replace("\"teacher_id\":" + testTeacher.getId(), "\"teacher_id\":999999");
+
+                mockMvc.perform(post("/api/session/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("[" + valid + "," + unknownTeacher + "]"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.errors[0].index").value(1))
+                        .andExpect(jsonPath("$.errors.length()").value(1));
+
+                assertThat(sessionRepository.count()).isEqualTo(before);
+        }
+
+        @Test
+        void testCreateSessionsInBulkReportsUnknownUsers() throws Exception {
+                long before = sessionRepository.count();
+                String item = "{"
+                        + "\"name\":\"Yoga\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Cours\","
+                        + "\"users\":[%s]"
+                        + "}";
+
+                mockMvc.perform(post("/api/session/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("[" + String.format(item, testUser.getId()) + "," + String.format(item, "999999") + "]"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.errors.length()").value(1))
+                        .andExpect(jsonPath("$.errors[0].index").value(1))
+                        .andExpect(jsonPath("$.errors[0].messages[0]").value("users unknown user 999999"));
+
+                assertThat(sessionRepository.count()).isEqualTo(before);
+        }
+
+        @Test
+        void testUpdateSessionsInBulk() throws Exception {
+                Session other = sessionRepository.save(Session.builder()
+                        .name("Pilates Monday")
+                        .description("Monday session")
+                        .date(new Date())
+                        .teacher(testTeacher)
+                        .users(new ArrayList<>())
+                        .build());
+                String item = "{"
+                        + "\"id\":%d,"
+                        + "\"version\":%d,"
+                        + "\"name\":\"%s\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Cours\""
+                        + "}";
+
+                // The second item was read before a change that bumped its version: nothing is applied
+                mockMvc.perform(put("/api/session/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("[" + String.format(item, session.getId(), 0, "Yoga Updated")
+                                        + "," + String.format(item, other.getId(), 5, "Pilates Updated") + "]"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.errors.length()").value(1))
+                        .andExpect(jsonPath("$.errors[0].index").value(1))
+                        .andExpect(jsonPath("$.errors[0].messages[0]").value("version is not the current one"));
+
+                assertThat(sessionRepository.findById(session.getId()).get().getName()).isEqualTo("Yoga Friday");
+
+                mockMvc.perform(put("/api/session/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("[" + String.format(item, session.getId(), 0, "Yoga Updated")
+                                        + "," + String.format(item, other.getId(), 0, "Pilates Updated") + "]"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.sessions[0].name").value("Yoga Updated"))
+                        .andExpect(jsonPath("$.sessions[1].name").value("Pilates Updated"))
+                        .andExpect(jsonPath("$.sessions[1].version").value(1))
+                        .andExpect(jsonPath("$.errors").isEmpty());
+        }
+
         @Test
         void testCreateSessionInvalidForm() throws Exception {
                 String json = "{"
@@ -174,6 +591,148 @@ public class SessionControllerITTest {
                         .andExpect(jsonPath("$.name").value("Yoga Updated"));
         }
 
+        @Test
+        void testUpdateSessionWithStaleVersion() throws Exception {
+                String base = "/api/session/" + session.getId();
+                String json = "{"
+                        + "\"name\":\"Yoga Updated\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Description mise à jour\","
+                        + "\"version\":0"
+                        + "}";
+
+                mockMvc.perform(get(base)
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.version").value(0))
+                        .andExpect(header().string("ETag", "\"v0\""));
+
+                mockMvc.perform(post(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                // The signup bumped the version, so an edit based on the earlier read is refused
+                mockMvc.perform(put(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content(json))
+                        .andExpect(status().isConflict());
+
+                mockMvc.perform(put(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content(json.replace("\"version\":0", "\"version\":1")))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.version").value(2))
+                        .andExpect(jsonPath("$.name").value("Yoga Updated"))
+                        .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+        }
+
+        @Test
+        void testUpdateSessionIgnoresUsersAndChecksCapacity() throws Exception {
+                String base = "/api/session/" + session.getId();
+                User otherUser = userRepository.save(User.builder()
+                        .email("other@test.fr")
+                        .firstName("Marie")
+                        .lastName("Durand")
+                        .password("password456")
+                        .admin(false)
+                        .build());
+
+                mockMvc.perform(post(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+                mockMvc.perform(post(base + "/participate/" + otherUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                String json = "{"
+                        + "\"name\":\"Yoga Updated\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Description mise à jour\","
+                        + "\"capacity\":1,"
+                        + "\"users\":[999999]"
+                        + "}";
+
+                mockMvc.perform(put(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content(json))
+                        .andExpect(status().isConflict());
+
+                // Participants are only changed through the participate endpoints, so unknown ids are not even looked up
+                mockMvc.perform(put(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content(json.replace("\"capacity\":1", "\"capacity\":2")))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.capacity").value(2))
+                        .andExpect(jsonPath("$.users.length()").value(2));
+        }
+
+        @Test
+        void testCreateSessionIgnoresClientIdAndVersion() throws Exception {
+                String json = "{"
+                        + "\"id\":" + session.getId() + ","
+                        + "\"version\":5,"
+                        + "\"name\":\"Yoga Débutant\","
+                        + "\"date\":\"2025-12-10\","
+                        + "\"teacher_id\":" + testTeacher.getId() + ","
+                        + "\"description\":\"Session de yoga pour débutants\""
+                        + "}";
+
+                mockMvc.perform(post("/api/session")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content(json))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.id").value(not(session.getId().intValue())))
+                        .andExpect(jsonPath("$.version").value(0));
+
+                mockMvc.perform(get("/api/session/" + session.getId())
+                                .header("Authorization", token))
+                        .andExpect(jsonPath("$.name").value("Yoga Friday"));
+        }
+
+        @Test
+        void testPatchSessionKeepsParticipants() throws Exception {
+                String base = "/api/session/" + session.getId();
+
+                mockMvc.perform(post(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                mockMvc.perform(patch(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("{\"description\":\"Description seule\"}"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.description").value("Description seule"))
+                        .andExpect(jsonPath("$.name").value("Yoga Friday"))
+                        .andExpect(jsonPath("$.users[0]").value(testUser.getId()))
+                        .andExpect(jsonPath("$.version").value(2));
+
+                mockMvc.perform(patch(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("{\"name\":\"Yoga\",\"version\":1}"))
+                        .andExpect(status().isConflict());
+
+                mockMvc.perform(patch(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("{\"teacher_id\":999999}"))
+                        .andExpect(status().isBadRequest());
+
+                mockMvc.perform(patch("/api/session/999999")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("{\"name\":\"Yoga\"}"))
+                        .andExpect(status().isNotFound());
+        }
+
         @Test
         void testUpdateSessionInvalidId() throws Exception {
                 String json = "{"
@@ -218,6 +777,17 @@ public class SessionControllerITTest {
                         .andExpect(status().isOk());
         }
 
+        @Test
+        void testParticipateTwiceSession() throws Exception {
+                mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isBadRequest());
+        }
+
         @Test
         void testNoLongerParticipateSession() throws Exception {
                 mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
@@ -229,6 +799,142 @@ public class SessionControllerITTest {
                         .andExpect(status().isOk());
         }
 
+        @Test
+        void testWaitlistPromotionOnLeave() throws Exception {
+                User waiting = userRepository.save(User.builder()
+                        .email("waiting@test.fr")
+                        .firstName("Anne")
+                        .lastName("Durand")
+                        .password(passwordEncoder.encode("password123"))
+                        .admin(false)
+                        .build());
+                jdbcTemplate.update("UPDATE SESSIONS SET capacity = 1 WHERE id = ?", session.getId());
+                String base = "/api/session/" + session.getId();
+
+                mockMvc.perform(post(base + "/waitlist/" + waiting.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isBadRequest());
+
+                mockMvc.perform(post(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+                mockMvc.perform(post(base + "/participate/" + waiting.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isConflict());
+                mockMvc.perform(post(base + "/waitlist/" + waiting.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+                mockMvc.perform(get(base + "/waitlist")
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$[0]").value(waiting.getId()));
+
+                mockMvc.perform(delete(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                mockMvc.perform(get(base)
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users[0]").value(waiting.getId()));
+                mockMvc.perform(get(base + "/waitlist")
+                                .header("Authorization", token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$").isEmpty());
+        }
+
+        @Test
+        void testPatchCapacityChecksParticipantsAndPromotes() throws Exception {
+                User waiting = userRepository.save(User.builder()
+                        .email("waiting@test.fr")
+                        .firstName("Anne")
+                        .lastName("Durand")
+                        .password(passwordEncoder.encode("password123"))
+                        .admin(false)
+                        .build());
+                String base = "/api/session/" + session.getId();
+
+                mockMvc.perform(post(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+                mockMvc.perform(patch(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("{\"capacity\":1}"))
+                        .andExpect(status().isOk());
+                mockMvc.perform(post(base + "/waitlist/" + waiting.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                mockMvc.perform(delete(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+                mockMvc.perform(post(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isConflict());
+                mockMvc.perform(post(base + "/waitlist/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                // The extra seat goes to the user queued behind the promoted one
+                mockMvc.perform(patch(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("{\"capacity\":2}"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users.length()").value(2));
+                mockMvc.perform(get(base + "/waitlist")
+                                .header("Authorization", token))
+                        .andExpect(jsonPath("$").isEmpty());
+
+                mockMvc.perform(patch(base)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Authorization", token)
+                                .content("{\"capacity\":1}"))
+                        .andExpect(status().isConflict());
+        }
+
+        @Test
+        void testWaitlistPromotionSkipsStaleEntry() throws Exception {
+                User stale = userRepository.save(User.builder()
+                        .email("stale@test.fr")
+                        .firstName("Anne")
+                        .lastName("Durand")
+                        .password(passwordEncoder.encode("password123"))
+                        .admin(false)
+                        .build());
+                User waiting = userRepository.save(User.builder()
+                        .email("waiting@test.fr")
+                        .firstName("Paul")
+                        .lastName("Bernard")
+                        .password(passwordEncoder.encode("password123"))
+                        .admin(false)
+                        .build());
+                jdbcTemplate.update("UPDATE SESSIONS SET capacity = 2 WHERE id = ?", session.getId());
+                String base = "/api/session/" + session.getId();
+
+                mockMvc.perform(post(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+                mockMvc.perform(post(base + "/participate/" + stale.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+                // Queued before joining directly, as a racing waitlist request could leave it
+                jdbcTemplate.update("INSERT INTO WAITLIST (session_id, user_id) VALUES (?, ?)", session.getId(), stale.getId());
+                jdbcTemplate.update("INSERT INTO WAITLIST (session_id, user_id) VALUES (?, ?)", session.getId(), waiting.getId());
+
+                mockMvc.perform(delete(base + "/participate/" + testUser.getId())
+                                .header("Authorization", token))
+                        .andExpect(status().isOk());
+
+                assertThat(jdbcTemplate.queryForList("SELECT user_id FROM PARTICIPATE WHERE session_id = ? ORDER BY user_id",
+                        Long.class, session.getId())).containsExactlyInAnyOrder(stale.getId(), waiting.getId());
+                assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM WAITLIST WHERE session_id = ?",
+                        Integer.class, session.getId())).isZero();
+                assertThat(jdbcTemplate.queryForObject("SELECT participant_count FROM SESSIONS WHERE id = ?",
+                        Integer.class, session.getId())).isEqualTo(2);
+        }
+
         @Test
         void testParticipateInvalidIds() throws Exception {
                 mockMvc.perform(post("/api/session/abc/participate/def")
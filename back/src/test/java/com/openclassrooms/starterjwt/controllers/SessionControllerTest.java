@@ -4,8 +4,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,13 +18,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.cache.EncodedResponseCache;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionSummaryDto;
+import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.exception.BulkRejectedException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionPatchRequest;
+import com.openclassrooms.starterjwt.payload.response.SessionBulkResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionPageResponse;
+import com.openclassrooms.starterjwt.payload.response.UserPageResponse;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionCatalogue;
+import com.openclassrooms.starterjwt.services.SessionCursor;
 import com.openclassrooms.starterjwt.services.SessionService;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +55,14 @@ public class SessionControllerTest {
     @Mock
     private SessionMapper sessionMapper;
 
+    @Mock
+    private UserMapper userMapper;
+
+    @Spy
+    private EncodedResponseCache responseCache = new EncodedResponseCache(new ObjectMapper().findAndRegisterModules(), 100, 60000L);
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     private Session testSession;
     private Session testSession2;
 
@@ -88,15 +116,15 @@ public class SessionControllerTest {
     public void testGetSessionById() {
         Long sessionId = 1L;
 
-        when(sessionService.getById(sessionId)).thenReturn(testSession);
-        when(sessionMapper.toDto(testSession)).thenReturn(sessionDto);
+        when(sessionService.getDtoById(sessionId)).thenReturn(sessionDto);
 
-        ResponseEntity<?> response = sessionController.findById(String.valueOf(sessionId));
+        ResponseEntity<?> response = sessionController.findById(String.valueOf(sessionId), null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(new String((byte[]) response.getBody(), StandardCharsets.UTF_8))
+                .contains("\"id\":1", "\"name\":\"Yoga Friday\"");
 
-        verify(sessionService).getById(sessionId);
-        verify(sessionMapper).toDto(testSession);
+        verify(sessionMapper, never()).toDto(any(Session.class));
     }
 
     @Test
@@ -104,47 +132,79 @@ public class SessionControllerTest {
     public void testGetSessionByIdNotFound() {
         Long sessionId = 99L;
 
-        when(sessionService.getById(sessionId)).thenReturn(null);
+        when(sessionService.getDtoById(sessionId)).thenReturn(null);
 
-        ResponseEntity<?> response = sessionController.findById(String.valueOf(sessionId));
+        ResponseEntity<?> response = sessionController.findById(String.valueOf(sessionId), null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(404);
-
-        verify(sessionService).getById(sessionId);
     }
 
         @Test
     @DisplayName("Should return 400 when session ID is invalid")
     public void testGetSessionByIdInvalid() {
-
-        ResponseEntity<?> response = sessionController.findById("invalid");
+        ResponseEntity<?> response = sessionController.findById("invalid", null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(400);
 
-        verify(sessionService, never()).getById(any());
+        verify(sessionService, never()).getDtoById(any());
     }
 
     @Test
     @DisplayName("Should get all sessions successfully")
     public void testGetAllSessions() {
-        List<Session> sessions = List.of(testSession, testSession2);
         List<SessionDto> sessionDtos = List.of(sessionDto, sessionDto2);
 
-        when(sessionService.findAll()).thenReturn(sessions);
-        when(sessionMapper.toDto(sessions)).thenReturn(sessionDtos);
+        when(sessionService.getCatalogue()).thenReturn(new SessionCatalogue(1L, sessionDtos));
 
-        ResponseEntity<?> response = sessionController.findAll();
+        ResponseEntity<?> response = sessionController.findAll(null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(new String((byte[]) response.getBody(), StandardCharsets.UTF_8))
+                .contains("\"name\":\"Yoga Friday\"", "\"name\":\"Pilates Monday\"");
 
-        verify(sessionService).findAll();
-        verify(sessionMapper).toDto(sessions);
+        verify(sessionService, never()).findAll();
+        verify(sessionMapper, never()).toDto(anyList());
+    }
+
+    @Test
+    @DisplayName("Should get a page of sessions with a next cursor")
+    public void testGetSessionPage() {
+        List<Session> sessions = new ArrayList<>(List.of(testSession, testSession2));
+
+        SessionSummaryDto summary = new SessionSummaryDto();
+
+        when(sessionService.findPage(null, null, null, null, 2)).thenReturn(sessions);
+        when(sessionMapper.toSummaryDto(List.of(testSession), 7L)).thenReturn(List.of(summary));
+
+        ResponseEntity<?> response = sessionController.findPage(null, 1, null, null, null, principal(7L));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+
+        SessionPageResponse page = (SessionPageResponse) response.getBody();
+        assertThat(page.getSessions()).containsExactly(summary);
+        assertThat(page.getNextCursor()).isEqualTo(SessionCursor.of(testSession).encode());
+    }
+
+    @Test
+    @DisplayName("Should return last page of sessions without a next cursor")
+    public void testGetLastSessionPage() {
+        List<Session> sessions = List.of(testSession, testSession2);
+        SessionCursor cursor = SessionCursor.of(testSession);
+
+        when(sessionService.findPage(any(SessionCursor.class), eq(null), eq(null), eq(1L), eq(SessionController.DEFAULT_PAGE_SIZE + 1))).thenReturn(sessions);
+
+        when(sessionMapper.toSummaryDto(sessions, 7L)).thenReturn(List.of(new SessionSummaryDto(), new SessionSummaryDto()));
+
+        ResponseEntity<?> response = sessionController.findPage(cursor.encode(), null, null, null, 1L, principal(7L));
+
+        SessionPageResponse page = (SessionPageResponse) response.getBody();
+        assertThat(page.getSessions()).hasSize(2);
+        assertThat(page.getNextCursor()).isNull();
     }
 
     @Test
     @DisplayName("Should create session successfully")
     public void testCreateSession() {
-
         when(sessionMapper.toEntity(sessionDto)).thenReturn(testSession);
         when(sessionService.create(testSession)).thenReturn(testSession);
         when(sessionMapper.toDto(testSession)).thenReturn(sessionDto);
@@ -163,7 +223,7 @@ public class SessionControllerTest {
     public void testUpdateSession() {
         Long sessionId = 1L;
 
-        when(sessionMapper.toEntity(sessionDto)).thenReturn(testSession);
+        when(sessionMapper.toDetails(sessionDto)).thenReturn(testSession);
         when(sessionService.update(sessionId, testSession)).thenReturn(testSession);
         when(sessionMapper.toDto(testSession)).thenReturn(sessionDto);
 
@@ -171,7 +231,8 @@ public class SessionControllerTest {
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
 
-        verify(sessionMapper).toEntity(sessionDto);
+        verify(sessionMapper).toDetails(sessionDto);
+        verify(sessionMapper, never()).toEntity(any(SessionDto.class));
         verify(sessionService).update(sessionId, testSession);
         verify(sessionMapper).toDto(testSession);
     }
@@ -179,7 +240,6 @@ public class SessionControllerTest {
         @Test
     @DisplayName("Should return 404 when updating with invalid session ID")
     public void testUpdateSessionNotFound() {
-
         ResponseEntity<?> response = sessionController.update("invalid", new SessionDto());
 
         assertThat(response.getStatusCodeValue()).isEqualTo(400);
@@ -188,6 +248,195 @@ public class SessionControllerTest {
         verify(sessionService, never()).update(any(), any(Session.class));
     }
 
+    @Test
+    @DisplayName("Should create a valid list of sessions in one call")
+    public void testCreateAll() {
+        SessionController controller = new SessionController(sessionService, sessionMapper, userMapper, responseCache, validator);
+        sessionDto.setTeacher_id(1L);
+        sessionDto2.setTeacher_id(1L);
+        List<SessionDto> dtos = List.of(sessionDto, sessionDto2);
+        List<Session> sessions = List.of(testSession, testSession2);
+        testSession.setTeacher(new Teacher());
+        testSession2.setTeacher(new Teacher());
+
+        when(sessionMapper.toEntity(dtos)).thenReturn(sessions);
+        when(sessionService.createAll(sessions)).thenReturn(sessions);
+        when(sessionMapper.toDto(sessions)).thenReturn(dtos);
+
+        ResponseEntity<?> response = controller.createAll(dtos);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        SessionBulkResponse body = (SessionBulkResponse) response.getBody();
+        assertThat(body.getSessions()).isEqualTo(dtos);
+        assertThat(body.getErrors()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should report invalid items and create nothing")
+    public void testCreateAllWithInvalidItem() {
+        SessionController controller = new SessionController(sessionService, sessionMapper, userMapper, responseCache, validator);
+        sessionDto.setTeacher_id(1L);
+        sessionDto2.setName(null);
+
+        ResponseEntity<?> response = controller.createAll(List.of(sessionDto, sessionDto2));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        SessionBulkResponse body = (SessionBulkResponse) response.getBody();
+        assertThat(body.getErrors()).hasSize(1);
+        assertThat(body.getErrors().get(0).getIndex()).isEqualTo(1);
+        assertThat(body.getErrors().get(0).getMessages()).anyMatch(message -> message.startsWith("name"));
+        assertThat(body.getErrors().get(0).getMessages()).anyMatch(message -> message.startsWith("teacher_id"));
+        verify(sessionService, never()).createAll(any());
+    }
+
+    @Test
+    @DisplayName("Should report items whose teacher does not exist")
+    public void testCreateAllWithUnknownTeacher() {
+        SessionController controller = new SessionController(sessionService, sessionMapper, userMapper, responseCache, validator);
+        sessionDto.setTeacher_id(42L);
+        List<SessionDto> dtos = List.of(sessionDto);
+
+        when(sessionMapper.toEntity(dtos)).thenReturn(List.of(testSession));
+
+        ResponseEntity<?> response = controller.createAll(dtos);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        SessionBulkResponse body = (SessionBulkResponse) response.getBody();
+        assertThat(body.getErrors().get(0).getMessages()).containsExactly("teacher_id unknown teacher 42");
+        verify(sessionService, never()).createAll(any());
+    }
+
+    @Test
+    @DisplayName("Should report items referencing unknown users")
+    public void testCreateAllWithUnknownUser() {
+        SessionController controller = new SessionController(sessionService, sessionMapper, userMapper, responseCache, validator);
+        sessionDto.setTeacher_id(1L);
+        sessionDto.setUsers(List.of(1L, 42L));
+        List<SessionDto> dtos = List.of(sessionDto);
+        List<User> users = new ArrayList<>();
+        users.add(testUser);
+        users.add(null);
+        testSession.setTeacher(new Teacher());
+        testSession.setUsers(users);
+
+        when(sessionMapper.toEntity(dtos)).thenReturn(List.of(testSession));
+
+        ResponseEntity<?> response = controller.createAll(dtos);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        SessionBulkResponse body = (SessionBulkResponse) response.getBody();
+        assertThat(body.getErrors().get(0).getIndex()).isZero();
+        assertThat(body.getErrors().get(0).getMessages()).containsExactly("users unknown user 42");
+        verify(sessionService, never()).createAll(any());
+    }
+
+    @Test
+    @DisplayName("Should update a valid list of sessions in one call")
+    public void testUpdateAll() {
+        SessionController controller = new SessionController(sessionService, sessionMapper, userMapper, responseCache, validator);
+        sessionDto.setTeacher_id(1L);
+        sessionDto2.setTeacher_id(1L);
+        List<SessionDto> dtos = List.of(sessionDto, sessionDto2);
+        Session details = new Session();
+        details.setTeacher(new Teacher());
+        Session details2 = new Session();
+        details2.setTeacher(new Teacher());
+        List<Session> sessions = List.of(details, details2);
+
+        when(sessionMapper.toDetails(dtos)).thenReturn(sessions);
+        when(sessionService.updateAll(sessions)).thenReturn(List.of(testSession, testSession2));
+        when(sessionMapper.toDto(List.of(testSession, testSession2))).thenReturn(dtos);
+
+        ResponseEntity<?> response = controller.updateAll(dtos);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(details.getId()).isEqualTo(1L);
+        assertThat(details2.getId()).isEqualTo(2L);
+        assertThat(((SessionBulkResponse) response.getBody()).getSessions()).isEqualTo(dtos);
+        verify(sessionMapper, never()).toEntity(anyList());
+    }
+
+    @Test
+    @DisplayName("Should require a distinct id on every bulk update item")
+    public void testUpdateAllWithoutIds() {
+        SessionController controller = new SessionController(sessionService, sessionMapper, userMapper, responseCache, validator);
+        sessionDto.setTeacher_id(1L);
+        sessionDto2.setTeacher_id(1L);
+        sessionDto2.setId(null);
+        SessionDto duplicate = new SessionDto();
+        duplicate.setId(1L);
+        duplicate.setName("Yoga");
+        duplicate.setDate(sessionDto.getDate());
+        duplicate.setTeacher_id(1L);
+        duplicate.setDescription("Copy");
+
+        ResponseEntity<?> response = controller.updateAll(List.of(sessionDto, sessionDto2, duplicate));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        SessionBulkResponse body = (SessionBulkResponse) response.getBody();
+        assertThat(body.getErrors()).hasSize(2);
+        assertThat(body.getErrors().get(0).getMessages()).containsExactly("id must not be null");
+        assertThat(body.getErrors().get(1).getIndex()).isEqualTo(2);
+        assertThat(body.getErrors().get(1).getMessages()).containsExactly("id appears more than once");
+        verify(sessionService, never()).updateAll(any());
+    }
+
+    @Test
+    @DisplayName("Should report the items the service refused and update nothing")
+    public void testUpdateAllRejected() {
+        SessionController controller = new SessionController(sessionService, sessionMapper, userMapper, responseCache, validator);
+        sessionDto.setTeacher_id(1L);
+        List<SessionDto> dtos = List.of(sessionDto);
+        Session details = new Session();
+        details.setTeacher(new Teacher());
+        List<Session> sessions = List.of(details);
+
+        when(sessionMapper.toDetails(dtos)).thenReturn(sessions);
+        when(sessionService.updateAll(sessions)).thenThrow(new BulkRejectedException(Map.of(0, "version is not the current one")));
+
+        ResponseEntity<?> response = controller.updateAll(dtos);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        SessionBulkResponse body = (SessionBulkResponse) response.getBody();
+        assertThat(body.getSessions()).isEmpty();
+        assertThat(body.getErrors().get(0).getMessages()).containsExactly("version is not the current one");
+    }
+
+    @Test
+    @DisplayName("Should reject an empty bulk request")
+    public void testCreateAllEmpty() {
+        ResponseEntity<?> response = sessionController.createAll(new ArrayList<>());
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        verify(sessionService, never()).createAll(any());
+    }
+
+    @Test
+    @DisplayName("Should patch session without going through the entity mapper")
+    public void testPatchSession() {
+        Long sessionId = 1L;
+        SessionPatchRequest request = new SessionPatchRequest();
+        request.setDescription("Nouvelle description");
+
+        when(sessionService.patch(sessionId, request)).thenReturn(testSession);
+        when(sessionMapper.toDto(testSession)).thenReturn(sessionDto);
+
+        ResponseEntity<?> response = sessionController.patch(String.valueOf(sessionId), request);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(sessionDto);
+        verify(sessionMapper, never()).toEntity(any(SessionDto.class));
+    }
+
+    @Test
+    @DisplayName("Should return 400 when patching with invalid session ID")
+    public void testPatchSessionInvalidId() {
+        ResponseEntity<?> response = sessionController.patch("invalid", new SessionPatchRequest());
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        verify(sessionService, never()).patch(any(), any());
+    }
+
     @Test
     @DisplayName("Should delete session successfully")
     public void testDeleteSession() {
@@ -276,4 +525,105 @@ public class SessionControllerTest {
 
         verify(sessionService, never()).noLongerParticipate(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should return the waitlist of a session")
+    public void testFindWaitlist() {
+        when(sessionService.getWaitlist(1L)).thenReturn(List.of(3L, 2L));
+
+        ResponseEntity<?> response = sessionController.findWaitlist("1");
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(List.of(3L, 2L));
+    }
+
+    @Test
+    @DisplayName("Should join and leave the waitlist of a session")
+    public void testJoinAndLeaveWaitlist() {
+        ResponseEntity<?> joined = sessionController.joinWaitlist("1", "2");
+        ResponseEntity<?> left = sessionController.leaveWaitlist("1", "2");
+
+        assertThat(joined.getStatusCodeValue()).isEqualTo(200);
+        assertThat(left.getStatusCodeValue()).isEqualTo(200);
+        verify(sessionService).joinWaitlist(1L, 2L);
+        verify(sessionService).leaveWaitlist(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should return 400 on waitlist endpoints with invalid ids")
+    public void testWaitlistInvalidIds() {
+        assertThat(sessionController.findWaitlist("invalid").getStatusCodeValue()).isEqualTo(400);
+        assertThat(sessionController.joinWaitlist("1", "invalid").getStatusCodeValue()).isEqualTo(400);
+        assertThat(sessionController.leaveWaitlist("invalid", "1").getStatusCodeValue()).isEqualTo(400);
+
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    @DisplayName("Should page the participants of a session by user id")
+    public void testFindParticipants() {
+        User second = new User();
+        second.setId(2L);
+        List<UserDto> dtos = List.of(new UserDto());
+
+        when(sessionService.findParticipants(1L, null, 2)).thenReturn(List.of(testUser, second));
+        when(userMapper.toDto(List.of(testUser))).thenReturn(dtos);
+
+        ResponseEntity<?> response = sessionController.findParticipants("1", null, 1, principal(7L, true));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        UserPageResponse page = (UserPageResponse) response.getBody();
+        assertThat(page.getUsers()).isEqualTo(dtos);
+        assertThat(page.getNextCursor()).isEqualTo("1");
+        verify(sessionService, never()).getById(any());
+    }
+
+    @Test
+    @DisplayName("Should continue the participants of a session after the cursor")
+    public void testFindParticipantsAfterCursor() {
+        when(sessionService.findParticipants(1L, 1L, SessionController.DEFAULT_PAGE_SIZE + 1)).thenReturn(List.of());
+
+        ResponseEntity<?> response = sessionController.findParticipants("1", "1", null, principal(7L, true));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(((UserPageResponse) response.getBody()).getNextCursor()).isNull();
+        verify(sessionService, never()).getById(any());
+    }
+
+    @Test
+    @DisplayName("Should return 404 for the participants of an unknown session")
+    public void testFindParticipantsSessionNotFound() {
+        when(sessionService.findParticipants(99L, null, SessionController.DEFAULT_PAGE_SIZE + 1)).thenReturn(List.of());
+        when(sessionService.getById(99L)).thenReturn(null);
+
+        ResponseEntity<?> response = sessionController.findParticipants("99", null, null, principal(7L, true));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Should return 401 for the participants of a session when not an administrator")
+    public void testFindParticipantsNotAdmin() {
+        ResponseEntity<?> response = sessionController.findParticipants("1", null, null, principal(7L));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(401);
+        verify(sessionService, never()).findParticipants(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an invalid participants cursor")
+    public void testFindParticipantsInvalidCursor() {
+        ResponseEntity<?> response = sessionController.findParticipants("1", "not-an-id", null, principal(7L, true));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        verify(sessionService, never()).findParticipants(any(), any(), anyInt());
+    }
+
+    private static UserDetailsImpl principal(Long userId) {
+        return principal(userId, false);
+    }
+
+    private static UserDetailsImpl principal(Long userId, boolean admin) {
+        return UserDetailsImpl.builder().id(userId).username("test@test.fr").admin(admin).build();
+    }
+}
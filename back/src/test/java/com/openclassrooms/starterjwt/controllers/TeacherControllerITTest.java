@@ -1,5 +1,6 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.CachesDisabled;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
@@ -18,12 +19,14 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
+@CachesDisabled
 @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @DisplayName("TeacherController Integration Tests")
 public class TeacherControllerITTest {
@@ -112,4 +115,15 @@ public class TeacherControllerITTest {
             .andExpect(jsonPath("$[0].firstName").value("Pierre"))
             .andExpect(jsonPath("$[0].lastName").value("Martin"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindAllTeachersGzipped() throws Exception {
+        mockMvc.perform(get("/api/teacher")
+                .header("Authorization", token)
+                .header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+            .andExpect(content().contentType("application/json"));
+    }
+}
@@ -1,8 +1,9 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -11,9 +12,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.cache.EncodedResponseCache;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
@@ -32,6 +36,9 @@ public class TeacherControllerTest {
     @Mock
     private TeacherMapper teacherMapper;
 
+    @Spy
+    private EncodedResponseCache responseCache = new EncodedResponseCache(new ObjectMapper().findAndRegisterModules(), 100, 60000L);
+
     private Teacher testTeacher;
     private Teacher testTeacher2;
 
@@ -69,11 +76,12 @@ public class TeacherControllerTest {
         when(teacherService.findById(teacherId)).thenReturn(testTeacher);
         when(teacherMapper.toDto(testTeacher)).thenReturn(teacherDto);
 
-        ResponseEntity<?> response = teacherController.findById(teacherId.toString());
+        ResponseEntity<?> response = teacherController.findById(teacherId.toString(), null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
 
-        assertThat(response.getBody()).isEqualTo(teacherDto);
+        assertThat(new String((byte[]) response.getBody(), StandardCharsets.UTF_8))
+                .contains("\"id\":1", "\"lastName\":\"Dupont\"", "\"firstName\":\"Jean\"");
     }
 
     @Test
@@ -83,7 +91,7 @@ public class TeacherControllerTest {
 
         when(teacherService.findById(teacherId)).thenReturn(null);
 
-        ResponseEntity<?> response = teacherController.findById(teacherId.toString());
+        ResponseEntity<?> response = teacherController.findById(teacherId.toString(), null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(404);
     }
@@ -91,7 +99,7 @@ public class TeacherControllerTest {
     @Test
     @DisplayName("Should return 400 for invalid teacher ID")
     public void testGetTeacherByIdInvalid() {
-        ResponseEntity<?> response = teacherController.findById("invalid");
+        ResponseEntity<?> response = teacherController.findById("invalid", null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(400);
     }
@@ -105,10 +113,27 @@ public class TeacherControllerTest {
         when(teacherService.findAll()).thenReturn(teachers);
         when(teacherMapper.toDto(teachers)).thenReturn(teacherDtos);
 
-        ResponseEntity<?> response = teacherController.findAll();
+        ResponseEntity<?> response = teacherController.findAll(null);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
 
-        assertThat(response.getBody()).isEqualTo(teacherDtos);
+        assertThat(new String((byte[]) response.getBody(), StandardCharsets.UTF_8))
+                .contains("\"lastName\":\"Dupont\"", "\"lastName\":\"Martin\"");
+    }
+
+    @Test
+    @DisplayName("Should map and serialize the same teacher list only once")
+    public void testGetAllTeachersReusesEncodedBody() {
+        List<Teacher> teachers = List.of(testTeacher, testTeacher2);
+
+        when(teacherService.findAll()).thenReturn(teachers);
+        when(teacherMapper.toDto(teachers)).thenReturn(List.of(teacherDto, teacherDto2));
+
+        ResponseEntity<?> first = teacherController.findAll(null);
+        ResponseEntity<?> second = teacherController.findAll("gzip, deflate");
+
+        assertThat(second.getHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+        assertThat(first.getHeaders().getFirst("Content-Encoding")).isNull();
+        verify(teacherMapper, times(1)).toDto(teachers);
     }
 }
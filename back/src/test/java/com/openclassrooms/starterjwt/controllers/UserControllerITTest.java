@@ -1,6 +1,11 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.CachesDisabled;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
 import org.junit.jupiter.api.AfterEach;
@@ -15,13 +20,21 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
+@CachesDisabled
 @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @DisplayName("UserController Integration Tests")
 public class UserControllerITTest {
@@ -31,6 +44,12 @@ public class UserControllerITTest {
 
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
         
     @Autowired
     private PasswordEncoder passwordEncoder;
@@ -71,6 +90,21 @@ public class UserControllerITTest {
         .andExpect(jsonPath("$.email").value("test@test.fr"));
     }
 
+    @Test
+    void testFindByIdConditionalRequest() throws Exception {
+        String etag = mockMvc.perform(get("/api/user/" + testUser.getId())
+                .header("Authorization", token))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("Last-Modified"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/user/" + testUser.getId())
+                .header("Authorization", token)
+                .header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
     @Test
     void testFindByIdInvalidId() throws Exception {
         mockMvc.perform(get("/api/user/invalid")
@@ -85,6 +119,90 @@ public class UserControllerITTest {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testFindSessionsReturnsOnlyUpcomingBookings() throws Exception {
+        Session soon = bookedSession("Soon", 1, true);
+        Session later = bookedSession("Later", 2, true);
+        bookedSession("Past", -1, true);
+        bookedSession("Not booked", 1, false);
+
+        mockMvc.perform(get("/api/user/" + testUser.getId() + "/sessions")
+                .header("Authorization", token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].id").value(soon.getId()))
+            .andExpect(jsonPath("$[1].id").value(later.getId()))
+            .andExpect(jsonPath("$[0].participantCount").value(1))
+            .andExpect(jsonPath("$[0].currentUserParticipates").value(true));
+    }
+
+    @Test
+    void testFindSessionPageFollowsCursor() throws Exception {
+        Session soon = bookedSession("Soon", 1, true);
+        Session later = bookedSession("Later", 2, true);
+
+        MvcResult first = mockMvc.perform(get("/api/user/" + testUser.getId() + "/sessions/page")
+                .header("Authorization", token)
+                .param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.sessions", hasSize(1)))
+            .andExpect(jsonPath("$.sessions[0].id").value(soon.getId()))
+            .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+            .andReturn();
+
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/user/" + testUser.getId() + "/sessions/page")
+                .header("Authorization", token)
+                .param("size", "1")
+                .param("cursor", cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.sessions", hasSize(1)))
+            .andExpect(jsonPath("$.sessions[0].id").value(later.getId()))
+            .andExpect(jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    void testFindSessionsUserNotFound() throws Exception {
+        userRepository.save(User.builder()
+                .email("admin@test.fr")
+                .firstName("Admin")
+                .lastName("Admin")
+                .password(passwordEncoder.encode("password123"))
+                .admin(true)
+                .build());
+        String adminToken = TokenGenerator.getAuthToken(mockMvc, "admin@test.fr", "password123");
+
+        mockMvc.perform(get("/api/user/9999/sessions")
+                .header("Authorization", adminToken))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testFindSessionsOfAnotherUserUnauthorized() throws Exception {
+        User other = userRepository.save(User.builder()
+                .email("other@test.fr")
+                .firstName("Marie")
+                .lastName("Martin")
+                .password(passwordEncoder.encode("password123"))
+                .admin(false)
+                .build());
+
+        mockMvc.perform(get("/api/user/" + other.getId() + "/sessions")
+                .header("Authorization", token))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/user/" + other.getId() + "/sessions/page")
+                .header("Authorization", token))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testFindSessionsInvalidId() throws Exception {
+        mockMvc.perform(get("/api/user/invalid/sessions")
+                .header("Authorization", token))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testDeleteUser() throws Exception {
         mockMvc.perform(delete("/api/user/" + testUser.getId())
@@ -105,4 +223,24 @@ public class UserControllerITTest {
                     .header("Authorization", token))
             .andExpect(status().isBadRequest());
     }
+
+    private Session bookedSession(String name, int daysFromNow, boolean booked) {
+        Teacher teacher = teacherRepository.save(Teacher.builder()
+                .firstName("Pierre")
+                .lastName("Martin")
+                .build());
+
+        Session session = sessionRepository.save(Session.builder()
+                .name(name)
+                .description(name + " session")
+                .date(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(daysFromNow)))
+                .teacher(teacher)
+                .build());
+
+        if (booked) {
+            sessionRepository.addParticipant(session.getId(), testUser.getId());
+        }
+
+        return session;
+    }
 }
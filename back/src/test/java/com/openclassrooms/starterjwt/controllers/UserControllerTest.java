@@ -1,8 +1,18 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,14 +22,27 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.actuate.endpoint.SecurityContext;
 import org.springframework.boot.autoconfigure.neo4j.Neo4jProperties.Authentication;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import com.openclassrooms.starterjwt.dto.SessionSummaryDto;
 import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.SessionPageResponse;
+import com.openclassrooms.starterjwt.repository.VersionStamp;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.UserService;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +58,12 @@ public class UserControllerTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private SessionMapper sessionMapper;
+
     @Mock
     private SecurityContext securityContext;
     
@@ -44,12 +73,22 @@ public class UserControllerTest {
     @Mock
     private UserDetails userDetails;
 
+    @Mock
+    private VersionStamp versionStamp;
+
     private User testUser;
 
     private UserDto userDto;
 
+    private MockHttpServletRequest request;
+
+    private ServletWebRequest webRequest;
+
     @BeforeEach
     public void setUp() {
+        request = new MockHttpServletRequest("GET", "/api/user/1");
+        webRequest = new ServletWebRequest(request, new MockHttpServletResponse());
+
         testUser = new User();
         testUser.setId(1L);
         testUser.setEmail("test@test.fr");
@@ -74,13 +113,49 @@ public class UserControllerTest {
         when(userService.findById(userId)).thenReturn(testUser);
         when(userMapper.toDto(testUser)).thenReturn(userDto);
 
-        ResponseEntity<?> response = userController.findById(userId.toString());
+        ResponseEntity<?> response = userController.findById(userId.toString(), webRequest);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
 
         assertThat(response.getBody()).isEqualTo(userDto);
     }
 
+    @Test
+    @DisplayName("Should answer 304 from the version without loading the user")
+    public void testFindByIdNotModified() {
+        Long userId = 1L;
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v3\"");
+
+        when(userService.findVersionStampById(userId)).thenReturn(versionStamp);
+        when(versionStamp.getVersion()).thenReturn(3L);
+        when(versionStamp.getUpdatedAt()).thenReturn(LocalDateTime.of(2024, 1, 1, 10, 0));
+
+        ResponseEntity<?> response = userController.findById(userId.toString(), webRequest);
+
+        assertThat(response).isNull();
+        assertThat(webRequest.getResponse().getStatus()).isEqualTo(304);
+        verify(userService, never()).findById(userId);
+    }
+
+    @Test
+    @DisplayName("Should return the user with validators when the ETag is stale")
+    public void testFindByIdStaleEtag() {
+        Long userId = 1L;
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v2\"");
+
+        when(userService.findVersionStampById(userId)).thenReturn(versionStamp);
+        when(versionStamp.getVersion()).thenReturn(3L);
+        when(versionStamp.getUpdatedAt()).thenReturn(LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(userService.findById(userId)).thenReturn(testUser);
+        when(userMapper.toDto(testUser)).thenReturn(userDto);
+
+        ResponseEntity<?> response = userController.findById(userId.toString(), webRequest);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(userDto);
+        assertThat(webRequest.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("\"v3\"");
+    }
+
     @Test
     @DisplayName("Should return 404 when user not found by ID")
     public void testFindByIdNotFound() {
@@ -88,7 +163,7 @@ public class UserControllerTest {
 
         when(userService.findById(userId)).thenReturn(null);
 
-        ResponseEntity<?> response = userController.findById(userId.toString());
+        ResponseEntity<?> response = userController.findById(userId.toString(), webRequest);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(404);
     }
@@ -96,11 +171,111 @@ public class UserControllerTest {
     @Test
     @DisplayName("Should return 400 for invalid user ID")
     public void testFindByIdInvalid() {
-        ResponseEntity<?> response = userController.findById("invalid");
+        ResponseEntity<?> response = userController.findById("invalid", webRequest);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("Should return the upcoming sessions of a user")
+    public void testFindSessions() {
+        List<Session> sessions = Collections.singletonList(Session.builder().id(5L).build());
+        List<SessionSummaryDto> dtos = Collections.singletonList(new SessionSummaryDto());
+
+        when(sessionService.findUpcomingByParticipant(1L, null, PageRequest.of(0, SessionController.MAX_PAGE_SIZE))).thenReturn(sessions);
+        when(sessionMapper.toSummaryDto(sessions, 1L)).thenReturn(dtos);
+
+        ResponseEntity<?> response = userController.findSessions("1", principal(1L));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(dtos);
+        verify(userService, never()).existsById(1L);
+    }
+
+    @Test
+    @DisplayName("Should return 404 for the sessions of an unknown user")
+    public void testFindSessionsUserNotFound() {
+        when(sessionService.findUpcomingByParticipant(99L, null, PageRequest.of(0, SessionController.MAX_PAGE_SIZE))).thenReturn(Collections.emptyList());
+        when(userService.existsById(99L)).thenReturn(false);
+
+        ResponseEntity<?> response = userController.findSessions("99", principal(1L, true));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Should let an administrator list the sessions of another user")
+    public void testFindSessionsAsAdmin() {
+        List<Session> sessions = Collections.singletonList(Session.builder().id(5L).build());
+        List<SessionSummaryDto> dtos = Collections.singletonList(new SessionSummaryDto());
+
+        when(sessionService.findUpcomingByParticipant(1L, null, PageRequest.of(0, SessionController.MAX_PAGE_SIZE))).thenReturn(sessions);
+        when(sessionMapper.toSummaryDto(sessions, 2L)).thenReturn(dtos);
+
+        ResponseEntity<?> response = userController.findSessions("1", principal(2L, true));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(dtos);
+    }
+
+    @Test
+    @DisplayName("Should return 401 for the sessions of another user")
+    public void testFindSessionsOfAnotherUser() {
+        ResponseEntity<?> response = userController.findSessions("1", principal(2L));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(401);
+        verify(sessionService, never()).findUpcomingByParticipant(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return 400 for the sessions of an invalid user ID")
+    public void testFindSessionsInvalid() {
+        ResponseEntity<?> response = userController.findSessions("invalid", principal(1L));
 
         assertThat(response.getStatusCodeValue()).isEqualTo(400);
     }
 
+    @Test
+    @DisplayName("Should fetch one extra row to build the next cursor of a user's sessions")
+    public void testFindSessionPage() {
+        Session first = Session.builder().id(5L).date(new Date(1000L)).build();
+        Session second = Session.builder().id(6L).date(new Date(2000L)).build();
+        List<SessionSummaryDto> dtos = Collections.singletonList(new SessionSummaryDto());
+
+        when(sessionService.findUpcomingByParticipant(eq(1L), isNull(), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(first, second));
+        when(sessionMapper.toSummaryDto(List.of(first), 1L)).thenReturn(dtos);
+
+        ResponseEntity<?> response = userController.findSessionPage("1", null, 1, principal(1L));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        SessionPageResponse page = (SessionPageResponse) response.getBody();
+        assertThat(page.getSessions()).isEqualTo(dtos);
+        assertThat(page.getNextCursor()).isEqualTo(SessionCursor.of(first).encode());
+    }
+
+    @Test
+    @DisplayName("Should not return a cursor on the last page of a user's sessions")
+    public void testFindSessionPageLast() {
+        when(sessionService.findUpcomingByParticipant(eq(1L), any(SessionCursor.class), eq(PageRequest.of(0, SessionController.DEFAULT_PAGE_SIZE + 1))))
+                .thenReturn(Collections.emptyList());
+
+        ResponseEntity<?> response = userController.findSessionPage("1", new SessionCursor(new Date(), 3L).encode(), null, principal(1L));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(((SessionPageResponse) response.getBody()).getNextCursor()).isNull();
+        verify(userService, never()).existsById(1L);
+    }
+
+    @Test
+    @DisplayName("Should return 401 for a page of another user's sessions")
+    public void testFindSessionPageOfAnotherUser() {
+        ResponseEntity<?> response = userController.findSessionPage("1", null, null, principal(2L));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(401);
+        verify(sessionService, never()).findUpcomingByParticipant(any(), any(), any());
+    }
+
     @Test
     @DisplayName("Should delete user by ID")
     public void testDeleteById() {
@@ -148,4 +323,12 @@ public class UserControllerTest {
         
         assertThat(response.getStatusCodeValue()).isEqualTo(400);
     }
+
+    private static UserDetailsImpl principal(Long userId) {
+        return principal(userId, false);
+    }
+
+    private static UserDetailsImpl principal(Long userId, boolean admin) {
+        return UserDetailsImpl.builder().id(userId).username("test@test.fr").admin(admin).build();
+    }
 }
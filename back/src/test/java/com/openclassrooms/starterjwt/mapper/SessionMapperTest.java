@@ -1,11 +1,15 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionSummaryDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.collection.internal.PersistentBag;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,8 +22,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +38,9 @@ class SessionMapperTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private SessionRepository sessionRepository;
+
     @InjectMocks
     private SessionMapperImpl sessionMapper;
 
@@ -88,9 +98,8 @@ class SessionMapperTest {
 
     @Test
     void testToEntitySuccess() {
-        when(teacherService.findById(1L)).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(user1);
-        when(userService.findById(2L)).thenReturn(user2);
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
+        when(userService.findAllById(Set.of(1L, 2L))).thenReturn(Arrays.asList(user2, user1));
 
         Session result = sessionMapper.toEntity(sessionDto);
 
@@ -101,9 +110,58 @@ class SessionMapperTest {
         assertThat(result.getUsers()).hasSize(2);
         assertThat(result.getUsers()).containsExactly(user1, user2);
 
-        verify(teacherService).findById(1L);
-        verify(userService).findById(1L);
-        verify(userService).findById(2L);
+        verify(teacherService).findAllById(Set.of(1L));
+        verify(userService, times(1)).findAllById(Set.of(1L, 2L));
+        verify(userService, never()).findById(any());
+    }
+
+    @Test
+    void testToEntityMapsDuplicateUsersOnce() {
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
+        when(userService.findAllById(Set.of(1L, 2L))).thenReturn(Arrays.asList(user1, user2));
+        sessionDto.setUsers(Arrays.asList(1L, 2L, 1L));
+
+        Session result = sessionMapper.toEntity(sessionDto);
+
+        assertThat(result.getUsers()).containsExactly(user1, user2);
+    }
+
+    @Test
+    void testToEntityListReportsDuplicateUnknownUsersOnce() {
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
+        when(userService.findAllById(Set.of(1L, 99L))).thenReturn(Collections.singletonList(user1));
+        sessionDto.setUsers(Arrays.asList(99L, 1L, 99L));
+
+        List<Session> result = sessionMapper.toEntity(Collections.singletonList(sessionDto));
+
+        assertThat(result.get(0).getUsers()).containsExactly(null, user1);
+    }
+
+    @Test
+    void testToEntityIgnoresClientIdAndVersion() {
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
+        sessionDto.setUsers(null);
+        sessionDto.setVersion(7L);
+
+        Session result = sessionMapper.toEntity(sessionDto);
+
+        assertThat(result.getId()).isNull();
+        assertThat(result.getVersion()).isNull();
+    }
+
+    @Test
+    void testToDetailsSkipsUsers() {
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
+        sessionDto.setVersion(7L);
+        sessionDto.setUsers(Arrays.asList(1L, 99L));
+
+        Session result = sessionMapper.toDetails(sessionDto);
+
+        assertThat(result.getName()).isEqualTo("Yoga Session");
+        assertThat(result.getTeacher()).isEqualTo(teacher);
+        assertThat(result.getVersion()).isEqualTo(7L);
+        assertThat(result.getUsers()).isNullOrEmpty();
+        verify(userService, never()).findAllById(any());
     }
 
     @Test
@@ -115,43 +173,61 @@ class SessionMapperTest {
 
         assertThat(result).isNotNull();
         assertThat(result.getTeacher()).isNull();
-        verify(teacherService, never()).findById(any());
+        verify(teacherService, never()).findAllById(any());
     }
 
     @Test
     void testToEntityWithNullUsers() {
-        when(teacherService.findById(1L)).thenReturn(teacher);
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
         sessionDto.setUsers(null);
 
         Session result = sessionMapper.toEntity(sessionDto);
 
         assertThat(result).isNotNull();
         assertThat(result.getUsers()).isEmpty();
-        verify(userService, never()).findById(any());
+        verify(userService, never()).findAllById(any());
     }
 
     @Test
     void testToEntityWithEmptyUsers() {
-        when(teacherService.findById(1L)).thenReturn(teacher);
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
         sessionDto.setUsers(Collections.emptyList());
 
         Session result = sessionMapper.toEntity(sessionDto);
 
         assertThat(result).isNotNull();
         assertThat(result.getUsers()).isEmpty();
-        verify(userService, never()).findById(any());
+        verify(userService, never()).findAllById(any());
+    }
+
+    @Test
+    void testToEntityWithUnknownUser() {
+        when(userService.findAllById(Set.of(1L, 2L))).thenReturn(Collections.singletonList(user1));
+
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> sessionMapper.toEntity(sessionDto));
+
+        assertThat(exception.getMessage()).contains("2");
+        verify(teacherService, never()).findAllById(any());
     }
 
     @Test
-    void testToEntityWithNullUser() {
-        when(teacherService.findById(1L)).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(user1);
-        when(userService.findById(2L)).thenReturn(null);
+    void testToEntityListKeepsUnknownUsersForTheCaller() {
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
+        when(userService.findAllById(Set.of(1L, 2L))).thenReturn(Collections.singletonList(user1));
+
+        List<Session> result = sessionMapper.toEntity(Collections.singletonList(sessionDto));
+
+        assertThat(result.get(0).getUsers()).containsExactly(user1, null);
+    }
+
+    @Test
+    void testToEntityWithUnknownTeacher() {
+        sessionDto.setUsers(Collections.emptyList());
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Collections.emptyMap());
 
         Session result = sessionMapper.toEntity(sessionDto);
 
-        assertThat(result).isNotNull();
-        assertThat(result.getUsers()).containsExactly(user1, null);
+        assertThat(result.getTeacher()).isNull();
     }
 
     @Test
@@ -203,15 +279,19 @@ class SessionMapperTest {
         dto2.setTeacher_id(1L);
         dto2.setUsers(Arrays.asList(2L));
 
-        when(teacherService.findById(1L)).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(user1);
-        when(userService.findById(2L)).thenReturn(user2);
+        when(teacherService.findAllById(Set.of(1L))).thenReturn(Map.of(1L, teacher));
+        when(userService.findAllById(Set.of(1L, 2L))).thenReturn(Arrays.asList(user1, user2));
 
         List<Session> result = sessionMapper.toEntity(Arrays.asList(dto1, dto2));
 
         assertThat(result).hasSize(2);
+        assertThat(result.get(1).getTeacher()).isEqualTo(teacher);
+        verify(teacherService, times(1)).findAllById(any());
         assertThat(result.get(0).getName()).isEqualTo("Session 1");
         assertThat(result.get(1).getName()).isEqualTo("Session 2");
+        assertThat(result.get(0).getUsers()).containsExactly(user1);
+        assertThat(result.get(1).getUsers()).containsExactly(user2);
+        verify(userService, times(1)).findAllById(any());
     }
 
     @Test
@@ -240,4 +320,85 @@ class SessionMapperTest {
         assertThat(result.get(0).getUsers()).containsExactly(1L);
         assertThat(result.get(1).getUsers()).containsExactly(2L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testToDtoListResolvesLazyParticipantsWithOneQuery() {
+        Session lazySession1 = Session.builder()
+            .id(1L)
+            .name("Session 1")
+            .teacher(teacher)
+            .users(new PersistentBag())
+            .build();
+
+        Session lazySession2 = Session.builder()
+            .id(2L)
+            .name("Session 2")
+            .teacher(teacher)
+            .users(new PersistentBag())
+            .build();
+
+        when(sessionRepository.findParticipantIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+            new Object[]{1, 1},
+            new Object[]{1, 2},
+            new Object[]{2, 2}));
+
+        List<SessionDto> result = sessionMapper.toDto(Arrays.asList(lazySession1, lazySession2));
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).getUsers()).containsExactly(1L, 2L);
+        assertThat(result.get(1).getUsers()).containsExactly(2L);
+        verify(sessionRepository, times(1)).findParticipantIds(any());
+    }
+
+    @Test
+    void testToDtoResolvesLazyParticipantsWithoutLoadingUsers() {
+        session.setUsers(new PersistentBag());
+
+        when(sessionRepository.findParticipantIds(Collections.singletonList(1L))).thenReturn(Collections.emptyList());
+
+        SessionDto result = sessionMapper.toDto(session);
+
+        assertThat(result.getUsers()).isEmpty();
+        verify(userService, never()).findById(any());
+    }
+
+    @Test
+    void testToDtoNullSession() {
+        assertThat(sessionMapper.toDto((Session) null)).isNull();
+        assertThat(sessionMapper.toDto((List<Session>) null)).isNull();
+        verify(sessionRepository, never()).findParticipantIds(any());
+    }
+
+    @Test
+    void testToSummaryDtoCountsParticipantsInOneQuery() {
+        Session emptySession = Session.builder()
+            .id(2L)
+            .name("Empty Session")
+            .date(new Date())
+            .teacher(teacher)
+            .users(new PersistentBag())
+            .build();
+        session.setUsers(new PersistentBag());
+
+        when(sessionRepository.findParticipation(Arrays.asList(1L, 2L), 2L)).thenReturn(Collections.singletonList(
+            new Object[]{1, 2L, 1}));
+
+        List<SessionSummaryDto> result = sessionMapper.toSummaryDto(Arrays.asList(session, emptySession), 2L);
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).getId()).isEqualTo(1L);
+        assertThat(result.get(0).getTeacher_id()).isEqualTo(1L);
+        assertThat(result.get(0).getParticipantCount()).isEqualTo(2L);
+        assertThat(result.get(0).isCurrentUserParticipates()).isTrue();
+        assertThat(result.get(1).getParticipantCount()).isZero();
+        assertThat(result.get(1).isCurrentUserParticipates()).isFalse();
+        verify(sessionRepository, never()).findParticipantIds(any());
+    }
+
+    @Test
+    void testToSummaryDtoEmptyList() {
+        assertThat(sessionMapper.toSummaryDto(Collections.emptyList(), 1L)).isEmpty();
+        assertThat(sessionMapper.toSummaryDto(null, 1L)).isNull();
+        verify(sessionRepository, never()).findParticipation(any(), any());
+    }
+}
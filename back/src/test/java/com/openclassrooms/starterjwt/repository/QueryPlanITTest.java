@@ -0,0 +1,141 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the indexes added by the migrations: each hot query must be answered through an index.
+ * The repository queries are run first so that the SQL explained is the one Hibernate generates.
+ * H2 prints the chosen index as a comment in its plan, and "tableScan" when it has none.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.openclassrooms.starterjwt.repository.QueryPlanITTest$CapturedStatements")
+@DisplayName("Query plan Integration Tests")
+public class QueryPlanITTest {
+
+    private static final Date AFTER_DATE = Timestamp.valueOf("2024-01-01 00:00:00");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        CapturedStatements.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("Should look users up by email through the unique index")
+    void shouldUseEmailIndex() {
+        userRepository.findByEmail("yoga@studio.com");
+
+        assertThat(explainCaptured("yoga@studio.com"))
+                .contains("UK_USERS_EMAIL")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Should read participants of sessions through the composite key")
+    void shouldUseParticipateKey() {
+        assertThat(explain("SELECT session_id, user_id FROM PARTICIPATE WHERE session_id IN (1, 2) ORDER BY session_id, user_id"))
+                .doesNotContain("tableScan");
+        assertThat(explain("SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = 1 AND user_id = 2"))
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Should page participants of a session through the composite key")
+    void shouldUseParticipateKeyForParticipants() {
+        userRepository.findParticipants(1L, 0L, PageRequest.of(0, 21));
+
+        assertThat(explainCaptured(1L, 0L, 21))
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Should read sessions of a user through the reverse index")
+    void shouldUseParticipateUserIndex() {
+        sessionRepository.findByParticipant(1L, AFTER_DATE, 0L, PageRequest.of(0, 21));
+
+        assertThat(explainCaptured(1L, AFTER_DATE, AFTER_DATE, 0L, 21))
+                .contains("IDX_PARTICIPATE_USER")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Should serve the first page of sessions through the date index")
+    void shouldUseSessionDateIndexForFirstPage() {
+        sessionRepository.findPage(null, null, null, null, null, 21);
+
+        assertThat(explainCaptured(21))
+                .contains("IDX_SESSIONS_DATE_ID")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Should page sessions after a cursor through the date index")
+    void shouldUseSessionDateIndexAfterCursor() {
+        sessionRepository.findPage(null, null, null, AFTER_DATE, 5L, 21);
+
+        assertThat(explainCaptured(AFTER_DATE, AFTER_DATE, 5L, 21))
+                .contains("IDX_SESSIONS_DATE_ID")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Should page sessions of a teacher through a teacher index")
+    void shouldUseSessionTeacherIndex() {
+        sessionRepository.findPage(null, null, 1L, AFTER_DATE, 5L, 21);
+
+        // H2 may pick the index of the teacher foreign key over the composite one, either seeks by teacher
+        assertThat(explainCaptured(1L, AFTER_DATE, AFTER_DATE, 5L, 21))
+                .doesNotContain("tableScan");
+    }
+
+    /**
+     * Explains the first statement Hibernate sent since the last reset, binding the given values in order.
+     */
+    private String explainCaptured(Object... params) {
+        assertThat(CapturedStatements.STATEMENTS).isNotEmpty();
+        return jdbcTemplate.queryForObject("EXPLAIN " + CapturedStatements.STATEMENTS.get(0), String.class, params);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares, leaving it unchanged.
+     */
+    public static class CapturedStatements implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
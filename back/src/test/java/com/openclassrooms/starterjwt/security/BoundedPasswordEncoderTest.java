@@ -0,0 +1,84 @@
+package com.openclassrooms.starterjwt.security;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@DisplayName("BoundedPasswordEncoder Tests")
+class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+
+    @Test
+    @DisplayName("Should delegate encoding, matching and upgrade checks")
+    void shouldDelegateToWrappedEncoder() {
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode("password123")).thenReturn("hash");
+        when(delegate.matches("password123", "hash")).thenReturn(true);
+        when(delegate.upgradeEncoding("hash")).thenReturn(true);
+        encoder = new BoundedPasswordEncoder(delegate, 2, 10);
+
+        assertThat(encoder.encode("password123")).isEqualTo("hash");
+        assertThat(encoder.matches("password123", "hash")).isTrue();
+        assertThat(encoder.upgradeEncoding("hash")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should propagate delegate exceptions unchanged")
+    void shouldPropagateDelegateExceptions() {
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.matches(any(), any())).thenThrow(new IllegalArgumentException("bad hash"));
+        encoder = new BoundedPasswordEncoder(delegate, 1, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.matches("password123", "not-a-hash"));
+    }
+
+    @Test
+    @DisplayName("Should reject work immediately once every slot and waiting place is taken")
+    void shouldRejectWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        encoder = new BoundedPasswordEncoder(delegate, 1, 1);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.queuedTasks() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(ServiceUnavailableException.class, () -> encoder.encode("c"));
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(encoder.encode("d")).isEqualTo("hash");
+    }
+
+    @Test
+    @DisplayName("Should hash on the calling thread")
+    void shouldHashOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode(any())).thenAnswer(invocation -> Thread.currentThread() == caller ? "hash" : "other");
+        encoder = new BoundedPasswordEncoder(delegate, 1, 0);
+
+        assertThat(encoder.encode("a")).isEqualTo("hash");
+    }
+}
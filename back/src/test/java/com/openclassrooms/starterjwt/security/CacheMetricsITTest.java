@@ -0,0 +1,111 @@
+package com.openclassrooms.starterjwt.security;
+
+import com.jayway.jsonpath.JsonPath;
+import com.openclassrooms.starterjwt.controllers.TokenGenerator;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Reads the authentication cache counters back through the actuator metrics endpoint. Counters are
+ * shared with the other tests of the context, so only their growth is checked.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@DisplayName("Cache metrics Integration Tests")
+public class CacheMetricsITTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User testUser;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String email = UUID.randomUUID() + "@test.fr";
+        testUser = userRepository.save(User.builder()
+                .email(email)
+                .firstName("Jean")
+                .lastName("Dupont")
+                .password(passwordEncoder.encode("password123"))
+                .admin(false)
+                .build());
+
+        token = TokenGenerator.getAuthToken(mockMvc, email, "password123");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should expose the verified token cache hits")
+    void shouldExposeTokenCacheHits() throws Exception {
+        double before = counter("auth.jwt.cache", "hit");
+
+        mockMvc.perform(get("/api/user/" + testUser.getId())
+                        .header("Authorization", token))
+                .andExpect(status().isOk());
+
+        assertThat(counter("auth.jwt.cache", "hit")).isGreaterThan(before);
+        assertThat(counter("auth.jwt.cache", "miss")).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should expose the user details cache hits")
+    void shouldExposeUserDetailsCacheHits() throws Exception {
+        double before = counter("auth.userdetails.cache", "hit");
+
+        mockMvc.perform(get("/api/user/" + testUser.getId())
+                        .header("Authorization", token))
+                .andExpect(status().isOk());
+
+        assertThat(counter("auth.userdetails.cache", "hit")).isGreaterThan(before);
+        assertThat(counter("auth.userdetails.cache", "miss")).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should not expose metrics without a token")
+    void shouldRequireTokenForMetrics() throws Exception {
+        mockMvc.perform(get("/actuator/metrics/auth.jwt.cache"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private double counter(String name, String result) throws Exception {
+        String body = mockMvc.perform(get("/actuator/metrics/" + name)
+                        .param("tag", "result:" + result)
+                        .header("Authorization", token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        return ((Number) JsonPath.read(body, "$.measurements[0].value")).doubleValue();
+    }
+}
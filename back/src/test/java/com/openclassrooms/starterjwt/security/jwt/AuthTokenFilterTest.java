@@ -1,7 +1,9 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
-import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -31,7 +33,10 @@ class AuthTokenFilterTest {
     private JwtUtils jwtUtils;
 
     @Mock
-    private UserDetailsServiceImpl userDetailsService;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Mock
+    private UserDetailsCache userDetailsCache;
 
     @Mock
     private HttpServletRequest request;
@@ -63,9 +68,8 @@ class AuthTokenFilterTest {
     void shouldAuthenticateUserWithValidJwtToken() throws ServletException, IOException {
         String validToken = "validJwtToken";
         when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
-        when(jwtUtils.validateJwtToken(validToken)).thenReturn(true);
-        when(jwtUtils.getUserNameFromJwtToken(validToken)).thenReturn("test@test.fr");
-        when(userDetailsService.loadUserByUsername("test@test.fr")).thenReturn(userDetails);
+        when(verifiedTokenCache.parseJwtToken(validToken)).thenReturn(JwtValidationResult.valid(Jwts.claims().setSubject("test@test.fr")));
+        when(userDetailsCache.loadUserByUsername("test@test.fr")).thenReturn(userDetails);
 
         authTokenFilter.doFilter(request, response, filterChain);
 
@@ -74,6 +78,22 @@ class AuthTokenFilterTest {
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
+    @Test
+    @DisplayName("Should authenticate from self-contained token claims without loading the user")
+    void shouldAuthenticateFromSelfContainedToken() throws ServletException, IOException {
+        String validToken = "selfContainedToken";
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
+        Claims claims = Jwts.claims().setSubject("test@test.fr");
+        when(verifiedTokenCache.parseJwtToken(validToken)).thenReturn(JwtValidationResult.valid(claims));
+        when(jwtUtils.getUserDetailsFromClaims(claims)).thenReturn((UserDetailsImpl) userDetails);
+
+        authTokenFilter.doFilter(request, response, filterChain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getPrincipal()).isEqualTo(userDetails);
+        verify(userDetailsCache, never()).loadUserByUsername(any());
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
     @Test
     @DisplayName("Should not authenticate when no authorization header")
     void shouldNotAuthenticateWhenNoAuthorizationHeader() throws ServletException, IOException {
@@ -82,7 +102,7 @@ class AuthTokenFilterTest {
         authTokenFilter.doFilter(request, response, filterChain);
 
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
-        verify(jwtUtils, never()).validateJwtToken(any());
+        verify(verifiedTokenCache, never()).parseJwtToken(any());
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
@@ -91,12 +111,12 @@ class AuthTokenFilterTest {
     void shouldNotAuthenticateWhenTokenIsInvalid() throws ServletException, IOException {
         String invalidToken = "invalidToken";
         when(request.getHeader("Authorization")).thenReturn("Bearer " + invalidToken);
-        when(jwtUtils.validateJwtToken(invalidToken)).thenReturn(false);
+        when(verifiedTokenCache.parseJwtToken(invalidToken)).thenReturn(JwtValidationResult.invalid(JwtValidationResult.Failure.MALFORMED));
 
         authTokenFilter.doFilter(request, response, filterChain);
 
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
-        verify(userDetailsService, never()).loadUserByUsername(any());
+        verify(userDetailsCache, never()).loadUserByUsername(any());
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
@@ -108,7 +128,7 @@ class AuthTokenFilterTest {
         authTokenFilter.doFilter(request, response, filterChain);
 
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
-        verify(jwtUtils, never()).validateJwtToken(any());
+        verify(verifiedTokenCache, never()).parseJwtToken(any());
         verify(filterChain, times(1)).doFilter(request, response);
     }
 }
\ No newline at end of file
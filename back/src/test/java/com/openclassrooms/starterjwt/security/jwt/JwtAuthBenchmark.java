@@ -0,0 +1,68 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT verification cost, before and after the single-pass parse in {@link JwtUtils}.
+ * Not part of the test suite; run it with
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.openclassrooms.starterjwt.security.jwt.JwtAuthBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "openclassrooms";
+
+    private JwtUtils jwtUtils;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3600000);
+        // The token below carries no version claim, so the registry is never consulted
+        ReflectionTestUtils.setField(jwtUtils, "tokenRevocationRegistry",
+                new TokenRevocationRegistry(Mockito.mock(UserRepository.class), 0, 0L));
+
+        token = Jwts.builder()
+                .setSubject("yoga@studio.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3600000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+    }
+
+    // What AuthTokenFilter used to do: validate, then parse again to read the subject
+    @Benchmark
+    public String validateThenParse() {
+        Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token);
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return jwtUtils.parseJwtToken(token).getClaims().getSubject();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtAuthBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import com.openclassrooms.starterjwt.repository.UserRepository;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -13,6 +14,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Date;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
@@ -26,6 +28,11 @@ class JwtUtilsTest {
     @Mock
     private Authentication authentication;
 
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     private UserDetailsImpl userDetails;
     private String testSecret = "testSecretKeyForJwtTokenGenerationAndValidation";
     private int testExpirationMs = 3600000;
@@ -37,12 +44,18 @@ class JwtUtilsTest {
         ReflectionTestUtils.setField(jwtUtils, "jwtSecret", testSecret);
         ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", testExpirationMs);
 
+        tokenRevocationRegistry = new TokenRevocationRegistry(userRepository, 100, 60000L);
+        ReflectionTestUtils.setField(jwtUtils, "tokenRevocationRegistry", tokenRevocationRegistry);
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0));
+
         userDetails = UserDetailsImpl.builder()
                 .id(1L)
                 .username("test@test.fr")
                 .firstName("Jean")
                 .lastName("Dupont")
                 .password("password123")
+                .admin(true)
+                .tokenVersion(0)
                 .build();
     }
 
@@ -131,4 +144,128 @@ class JwtUtilsTest {
 
         assertThat(isValid).isFalse();
     }
+
+    @Test
+    @DisplayName("Should not build user details from the token when self-contained mode is off")
+    void shouldNotBuildUserDetailsWhenSelfContainedModeIsOff() {
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        String token = jwtUtils.generateJwtToken(authentication);
+
+        assertThat(jwtUtils.getUserDetailsFromClaims(jwtUtils.parseJwtToken(token).getClaims())).isNull();
+    }
+
+    @Test
+    @DisplayName("Should build user details from self-contained token claims")
+    void shouldBuildUserDetailsFromSelfContainedToken() {
+        ReflectionTestUtils.setField(jwtUtils, "jwtSelfContained", true);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        String token = jwtUtils.generateJwtToken(authentication);
+
+        UserDetailsImpl result = jwtUtils.getUserDetailsFromClaims(jwtUtils.parseJwtToken(token).getClaims());
+
+        assertThat(result).isNotNull();
+        assertThat(result.getId()).isEqualTo(1L);
+        assertThat(result.getUsername()).isEqualTo("test@test.fr");
+        assertThat(result.getFirstName()).isEqualTo("Jean");
+        assertThat(result.getLastName()).isEqualTo("Dupont");
+        assertThat(result.getAdmin()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject self-contained tokens issued before the user was revoked")
+    void shouldRejectRevokedSelfContainedToken() {
+        ReflectionTestUtils.setField(jwtUtils, "jwtSelfContained", true);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        String token = jwtUtils.generateJwtToken(authentication);
+        assertThat(jwtUtils.validateJwtToken(token)).isTrue();
+
+        tokenRevocationRegistry.revoke(1L);
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(1));
+
+        assertThat(jwtUtils.validateJwtToken(token)).isFalse();
+
+        // The next login loads the bumped version along with the user
+        when(authentication.getPrincipal()).thenReturn(UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.fr")
+                .tokenVersion(1)
+                .build());
+        assertThat(jwtUtils.validateJwtToken(jwtUtils.generateJwtToken(authentication))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should stamp self-contained tokens with the stored version when the principal has none")
+    void shouldStampStoredVersionWhenPrincipalHasNone() {
+        ReflectionTestUtils.setField(jwtUtils, "jwtSelfContained", true);
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(4));
+        when(authentication.getPrincipal()).thenReturn(UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.fr")
+                .build());
+
+        String token = jwtUtils.generateJwtToken(authentication);
+
+        assertThat(jwtUtils.parseJwtToken(token).getClaims().get(JwtUtils.CLAIM_VERSION, Integer.class)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should always carry the admin flag as a boolean claim")
+    void shouldCarryAdminClaim() {
+        ReflectionTestUtils.setField(jwtUtils, "jwtSelfContained", true);
+        when(authentication.getPrincipal()).thenReturn(UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.fr")
+                .tokenVersion(0)
+                .build());
+
+        String token = jwtUtils.generateJwtToken(authentication);
+
+        assertThat(jwtUtils.parseJwtToken(token).getClaims().get(JwtUtils.CLAIM_ADMIN)).isEqualTo(false);
+        assertThat(jwtUtils.getUserDetailsFromClaims(jwtUtils.parseJwtToken(token).getClaims()).getAdmin()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should return the claims of a valid token in a single pass")
+    void shouldReturnClaimsForValidToken() {
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        String token = jwtUtils.generateJwtToken(authentication);
+
+        JwtValidationResult result = jwtUtils.parseJwtToken(token);
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getFailure()).isNull();
+        assertThat(result.getClaims().getSubject()).isEqualTo("test@test.fr");
+    }
+
+    @Test
+    @DisplayName("Should accept tokens signed with the raw secret string")
+    void shouldAcceptTokenSignedWithSecretString() {
+        String token = Jwts.builder()
+                .setSubject("test@test.fr")
+                .setExpiration(new Date(System.currentTimeMillis() + 3600000))
+                .signWith(SignatureAlgorithm.HS512, testSecret)
+                .compact();
+
+        assertThat(jwtUtils.parseJwtToken(token).isValid()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should report the reason a token was rejected")
+    void shouldReportFailureReason() {
+        String expiredToken = Jwts.builder()
+                .setSubject("test@test.fr")
+                .setExpiration(new Date(System.currentTimeMillis() - 5000))
+                .signWith(SignatureAlgorithm.HS512, testSecret)
+                .compact();
+        String badSignatureToken = Jwts.builder()
+                .setSubject("test@test.fr")
+                .signWith(SignatureAlgorithm.HS512, "wrongSecret")
+                .compact();
+
+        assertThat(jwtUtils.parseJwtToken(expiredToken).getFailure()).isEqualTo(JwtValidationResult.Failure.EXPIRED);
+        assertThat(jwtUtils.parseJwtToken(badSignatureToken).getFailure()).isEqualTo(JwtValidationResult.Failure.INVALID_SIGNATURE);
+        assertThat(jwtUtils.parseJwtToken("invalid.jwt.token").getFailure()).isEqualTo(JwtValidationResult.Failure.MALFORMED);
+        assertThat(jwtUtils.parseJwtToken("").getFailure()).isEqualTo(JwtValidationResult.Failure.EMPTY);
+        assertThat(jwtUtils.parseJwtToken("").getClaims()).isNull();
+    }
 }
@@ -0,0 +1,62 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@DisplayName("TokenRevocationRegistry Integration Tests")
+public class TokenRevocationRegistryITTest {
+
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        testUser = userRepository.save(User.builder()
+                .email("revoked@test.fr")
+                .firstName("Jean")
+                .lastName("Dupont")
+                .password("password123")
+                .admin(false)
+                .build());
+    }
+
+    @Test
+    @DisplayName("Should keep revocations in the database for other instances")
+    void shouldPersistRevocation() {
+        assertThat(tokenRevocationRegistry.currentVersion(testUser.getId())).isZero();
+
+        tokenRevocationRegistry.revoke(testUser.getId());
+
+        // A fresh registry stands in for a restarted or second instance with an empty cache
+        TokenRevocationRegistry otherInstance = new TokenRevocationRegistry(userRepository, 100, 60000L);
+        assertThat(userRepository.findTokenVersionById(testUser.getId())).contains(1);
+        assertThat(otherInstance.isRevoked(testUser.getId(), 0)).isTrue();
+        assertThat(otherInstance.isRevoked(testUser.getId(), 1)).isFalse();
+        assertThat(tokenRevocationRegistry.isRevoked(testUser.getId(), 0)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should revoke every token of a deleted user")
+    void shouldRevokeDeletedUser() {
+        userRepository.deleteById(testUser.getId());
+
+        assertThat(tokenRevocationRegistry.isRevoked(testUser.getId(), 0)).isTrue();
+    }
+}
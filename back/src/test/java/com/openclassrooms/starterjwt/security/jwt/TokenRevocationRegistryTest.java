@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TokenRevocationRegistry Tests")
+class TokenRevocationRegistryTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TokenRevocationRegistry(userRepository, 100, 60000L);
+    }
+
+    @Test
+    @DisplayName("Should only revoke versions older than the stored one for the given user")
+    void shouldRevokeOlderVersions() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0), Optional.of(1));
+        when(userRepository.findTokenVersionById(2L)).thenReturn(Optional.of(0));
+
+        assertThat(registry.currentVersion(1L)).isZero();
+        assertThat(registry.isRevoked(1L, 0)).isFalse();
+
+        registry.revoke(1L);
+
+        verify(userRepository, times(1)).incrementTokenVersion(1L);
+        assertThat(registry.currentVersion(1L)).isEqualTo(1);
+        assertThat(registry.isRevoked(1L, 0)).isTrue();
+        assertThat(registry.isRevoked(1L, 1)).isFalse();
+        assertThat(registry.isRevoked(2L, 0)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should read a user's version once while it is cached")
+    void shouldCacheVersions() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(3));
+
+        registry.isRevoked(1L, 3);
+        registry.isRevoked(1L, 3);
+
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("Should revoke every token of a user that no longer exists")
+    void shouldRevokeTokensOfDeletedUser() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThat(registry.isRevoked(1L, 0)).isTrue();
+        assertThat(registry.isRevoked(1L, 42)).isTrue();
+    }
+}
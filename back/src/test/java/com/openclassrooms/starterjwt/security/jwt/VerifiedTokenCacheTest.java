@@ -0,0 +1,87 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("VerifiedTokenCache Tests")
+class VerifiedTokenCacheTest {
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private MeterRegistry meterRegistry;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtils, meterRegistry, 100, 60000L);
+    }
+
+    @Test
+    @DisplayName("Should verify a token once and serve repeated calls from the cache")
+    void shouldServeRepeatedTokensFromCache() {
+        Claims claims = Jwts.claims().setSubject("test@test.fr").setExpiration(new Date(System.currentTimeMillis() + 60000));
+        when(jwtUtils.parseJwtToken("token")).thenReturn(JwtValidationResult.valid(claims));
+
+        JwtValidationResult first = verifiedTokenCache.parseJwtToken("token");
+        JwtValidationResult second = verifiedTokenCache.parseJwtToken("token");
+
+        assertThat(first.isValid()).isTrue();
+        assertThat(second.getClaims()).isSameAs(claims);
+        verify(jwtUtils, times(1)).parseJwtToken("token");
+        assertThat(meterRegistry.counter("auth.jwt.cache", "result", "hit").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("auth.jwt.cache", "result", "miss").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should not cache tokens that are already expired")
+    void shouldNotServeExpiredTokensFromCache() {
+        Claims claims = Jwts.claims().setSubject("test@test.fr").setExpiration(new Date(System.currentTimeMillis() - 1000));
+        when(jwtUtils.parseJwtToken("token")).thenReturn(JwtValidationResult.valid(claims));
+
+        verifiedTokenCache.parseJwtToken("token");
+        verifiedTokenCache.parseJwtToken("token");
+
+        verify(jwtUtils, times(2)).parseJwtToken("token");
+    }
+
+    @Test
+    @DisplayName("Should not cache rejected tokens")
+    void shouldNotCacheRejectedTokens() {
+        when(jwtUtils.parseJwtToken("token")).thenReturn(JwtValidationResult.invalid(JwtValidationResult.Failure.INVALID_SIGNATURE));
+
+        assertThat(verifiedTokenCache.parseJwtToken("token").isValid()).isFalse();
+        assertThat(verifiedTokenCache.parseJwtToken("token").isValid()).isFalse();
+
+        verify(jwtUtils, times(2)).parseJwtToken("token");
+    }
+
+    @Test
+    @DisplayName("Should reject a cached token once its user is revoked")
+    void shouldRejectCachedTokenAfterRevocation() {
+        Claims claims = Jwts.claims().setSubject("test@test.fr").setExpiration(new Date(System.currentTimeMillis() + 60000));
+        when(jwtUtils.parseJwtToken("token")).thenReturn(JwtValidationResult.valid(claims));
+        verifiedTokenCache.parseJwtToken("token");
+        when(jwtUtils.isRevoked(claims)).thenReturn(true);
+
+        JwtValidationResult result = verifiedTokenCache.parseJwtToken("token");
+
+        assertThat(result.getFailure()).isEqualTo(JwtValidationResult.Failure.REVOKED);
+    }
+}
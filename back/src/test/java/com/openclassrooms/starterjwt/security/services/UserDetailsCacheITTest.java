@@ -0,0 +1,133 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.controllers.TokenGenerator;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs with the test profile's cache bounds (2 entries, 1 second). Every test uses fresh emails, since
+ * entries of users removed by cleanup.sql may still be cached from a previous test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@DisplayName("UserDetailsCache Integration Tests")
+public class UserDetailsCacheITTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should serve cached details until the TTL elapses")
+    void shouldServeCachedDetailsUntilExpiry() throws Exception {
+        User user = createUser();
+        double hits = meterRegistry.counter("auth.userdetails.cache", "result", "hit").count();
+
+        assertThat(firstName(user)).isEqualTo("Jean");
+        rename(user, "Paul");
+        assertThat(firstName(user)).isEqualTo("Jean");
+        assertThat(meterRegistry.counter("auth.userdetails.cache", "result", "hit").count()).isEqualTo(hits + 1);
+
+        Thread.sleep(1100);
+
+        assertThat(firstName(user)).isEqualTo("Paul");
+    }
+
+    @Test
+    @DisplayName("Should drop the least recently used entry once the cache is full")
+    void shouldEvictLeastRecentlyUsedEntry() {
+        User first = createUser();
+        User second = createUser();
+        User third = createUser();
+
+        firstName(first);
+        firstName(second);
+        firstName(first);
+        firstName(third);
+        rename(first, "Paul");
+        rename(second, "Paul");
+
+        assertThat(firstName(first)).isEqualTo("Jean");
+        assertThat(firstName(second)).isEqualTo("Paul");
+    }
+
+    @Test
+    @DisplayName("Should stop authenticating a deleted user whose details were cached")
+    void shouldEvictDeletedUser() throws Exception {
+        User user = createUser();
+        String token = TokenGenerator.getAuthToken(mockMvc, user.getEmail(), "password123");
+
+        mockMvc.perform(get("/api/user/" + user.getId())
+                .header("Authorization", token))
+            .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/user/" + user.getId())
+                .header("Authorization", token))
+            .andExpect(status().isOk());
+        SecurityContextHolder.clearContext();
+
+        mockMvc.perform(get("/api/session")
+                .header("Authorization", token))
+            .andExpect(status().isUnauthorized());
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsCache.loadUserByUsername(user.getEmail()));
+    }
+
+    private User createUser() {
+        return userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@test.fr")
+                .firstName("Jean")
+                .lastName("Dupont")
+                .password(passwordEncoder.encode("password123"))
+                .admin(false)
+                .build());
+    }
+
+    private String firstName(User user) {
+        return ((UserDetailsImpl) userDetailsCache.loadUserByUsername(user.getEmail())).getFirstName();
+    }
+
+    private void rename(User user, String firstName) {
+        jdbcTemplate.update("UPDATE USERS SET first_name = ? WHERE id = ?", firstName, user.getId());
+    }
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserDetailsCache Tests")
+public class UserDetailsCacheTest {
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    private MeterRegistry meterRegistry;
+
+    private UserDetailsCache userDetailsCache;
+
+    private UserDetailsImpl userDetails;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsCache = new UserDetailsCache(userDetailsService, meterRegistry, 100, 60000L);
+        userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.fr")
+                .firstName("Jean")
+                .lastName("Dupont")
+                .password("password123")
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should load user details once and serve later lookups from the cache")
+    void shouldServeRepeatedLookupsFromCache() {
+        when(userDetailsService.loadUserByUsername("test@test.fr")).thenReturn(userDetails);
+
+        UserDetails first = userDetailsCache.loadUserByUsername("test@test.fr");
+        UserDetails second = userDetailsCache.loadUserByUsername("test@test.fr");
+
+        assertThat(first).isSameAs(userDetails);
+        assertThat(second).isSameAs(userDetails);
+        verify(userDetailsService, times(1)).loadUserByUsername("test@test.fr");
+        assertThat(meterRegistry.counter("auth.userdetails.cache", "result", "hit").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("auth.userdetails.cache", "result", "miss").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should reload user details after eviction by id")
+    void shouldReloadAfterEviction() {
+        when(userDetailsService.loadUserByUsername("test@test.fr")).thenReturn(userDetails);
+        userDetailsCache.loadUserByUsername("test@test.fr");
+
+        userDetailsCache.evictById(1L);
+        userDetailsCache.loadUserByUsername("test@test.fr");
+
+        verify(userDetailsService, times(2)).loadUserByUsername("test@test.fr");
+    }
+
+    @Test
+    @DisplayName("Should not cache unknown users")
+    void shouldNotCacheUnknownUsers() {
+        when(userDetailsService.loadUserByUsername("unknown@test.fr"))
+                .thenThrow(new UsernameNotFoundException("User Not Found with email: unknown@test.fr"));
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsCache.loadUserByUsername("unknown@test.fr"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsCache.loadUserByUsername("unknown@test.fr"));
+        verify(userDetailsService, times(2)).loadUserByUsername("unknown@test.fr");
+    }
+}
@@ -59,6 +59,7 @@ public class UserDetailsServiceImplTest {
         assertThat(userDetails.getLastName()).isEqualTo("Dupont");
         assertThat(userDetails.getFirstName()).isEqualTo("Jean");
         assertThat(userDetails.getPassword()).isEqualTo("password123");
+        assertThat(userDetails.getAdmin()).isFalse();
         
         verify(userRepository, times(1)).findByEmail(email);
     }
@@ -73,5 +74,25 @@ public class UserDetailsServiceImplTest {
         
         verify(userRepository, times(1)).findByEmail(email);
     }
-}
 
+    @Test
+    @DisplayName("Should store the upgraded hash and return details carrying it")
+    void shouldUpdatePasswordHash() {
+        UserDetailsImpl current = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.fr")
+                .firstName("Jean")
+                .lastName("Dupont")
+                .admin(false)
+                .password("oldHash")
+                .build();
+        when(userRepository.updatePassword("test@test.fr", "newHash")).thenReturn(1);
+
+        UserDetails result = userDetailsService.updatePassword(current, "newHash");
+
+        assertThat(result.getPassword()).isEqualTo("newHash");
+        assertThat(((UserDetailsImpl) result).getId()).isEqualTo(1L);
+        assertThat(result.getUsername()).isEqualTo("test@test.fr");
+        verify(userRepository, times(1)).updatePassword("test@test.fr", "newHash");
+    }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.SpringBootSecurityJwtApplication;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to import a term schedule through one create call per session versus a single bulk create,
+ * against the in-memory test database. Not part of the test suite; run it with
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.openclassrooms.starterjwt.services.SessionBulkBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionBulkBenchmark {
+
+    @Param({"100", "500"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+
+    private SessionService sessionService;
+
+    private SessionRepository sessionRepository;
+
+    private Teacher teacher;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringBootSecurityJwtApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.jpa.show-sql=false", "--spring.jpa.properties.hibernate.generate_statistics=false");
+        sessionService = context.getBean(SessionService.class);
+        sessionRepository = context.getBean(SessionRepository.class);
+        teacher = context.getBean(TeacherRepository.class).save(Teacher.builder().firstName("Pierre").lastName("Martin").build());
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearSessions() {
+        sessionRepository.deleteAllInBatch();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int perItem() {
+        int created = 0;
+        for (Session session : schedule()) {
+            sessionService.create(session);
+            created++;
+        }
+        return created;
+    }
+
+    @Benchmark
+    public int bulk() {
+        return sessionService.createAll(schedule()).size();
+    }
+
+    private List<Session> schedule() {
+        List<Session> sessions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sessions.add(Session.builder()
+                    .name("Yoga " + i)
+                    .date(new Date())
+                    .description("Cours " + i)
+                    .teacher(teacher)
+                    .users(new ArrayList<>())
+                    .build());
+        }
+        return sessions;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SessionBulkBenchmark.class.getSimpleName()).build()).run();
+    }
+}
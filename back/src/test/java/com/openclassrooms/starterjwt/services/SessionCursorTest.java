@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("SessionCursor Tests")
+class SessionCursorTest {
+
+    @Test
+    @DisplayName("Should encode and decode a cursor")
+    void shouldEncodeAndDecodeCursor() {
+        Session session = Session.builder()
+                .id(42L)
+                .date(new Date(1700000000123L))
+                .build();
+
+        SessionCursor cursor = SessionCursor.decode(SessionCursor.of(session).encode());
+
+        assertThat(cursor.getId()).isEqualTo(42L);
+        assertThat(cursor.getDate().getTime()).isEqualTo(1700000000123L);
+    }
+
+    @Test
+    @DisplayName("Should return null for missing cursor")
+    void shouldReturnNullForMissingCursor() {
+        assertThat(SessionCursor.decode(null)).isNull();
+        assertThat(SessionCursor.decode("")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should throw bad request exception for malformed cursor")
+    void shouldThrowBadRequestForMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("not-a-cursor"));
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("%%%"));
+    }
+}
@@ -1,6 +1,8 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.CachesDisabled;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
@@ -8,6 +10,8 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,16 +20,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 @ActiveProfiles("test")
+@CachesDisabled
 @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @DisplayName("SessionService Integration Tests")
 public class SessionServiceITTest {
@@ -42,6 +59,12 @@ public class SessionServiceITTest {
     @Autowired
     private TeacherRepository teacherRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private Session testSession;
     private User testUser;
     private User testUser2;
@@ -110,6 +133,30 @@ public class SessionServiceITTest {
         assertThat(savedSession.getTeacher().getId()).isEqualTo(testTeacher.getId());
     }
 
+    @Test
+    @DisplayName("Should insert a bulk import in JDBC batches with pooled ids")
+    void shouldBatchBulkInserts() {
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            sessions.add(Session.builder()
+                    .name("Yoga " + i)
+                    .description("Session " + i)
+                    .date(new Date())
+                    .teacher(testTeacher)
+                    .users(new ArrayList<>())
+                    .build());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Session> created = sessionService.createAll(sessions);
+
+        assertThat(created).extracting(Session::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(sessionRepository.count()).isEqualTo(121);
+        // Three insert batches and a few id block allocations, instead of one INSERT per session
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(20);
+    }
+
     @Test
     @DisplayName("Should find all sessions")
     void shouldFindAllSessions() {
@@ -184,10 +231,7 @@ public class SessionServiceITTest {
     void shouldParticipateUserInSession() {
         sessionService.participate(testSession.getId(), testUser.getId());
 
-        Session updatedSession = sessionRepository.findById(testSession.getId()).orElse(null);
-        assertThat(updatedSession).isNotNull();
-        assertThat(updatedSession.getUsers()).hasSize(1);
-        assertThat(updatedSession.getUsers().get(0).getId()).isEqualTo(testUser.getId());
+        assertThat(participantIds(testSession.getId())).containsExactly(testUser.getId());
     }
 
     @Test
@@ -196,14 +240,158 @@ public class SessionServiceITTest {
         sessionService.participate(testSession.getId(), testUser.getId());
         sessionService.participate(testSession.getId(), testUser2.getId());
 
-        Session updatedSession = sessionRepository.findById(testSession.getId()).orElse(null);
-        assertThat(updatedSession).isNotNull();
-        assertThat(updatedSession.getUsers()).hasSize(2);
-        assertThat(updatedSession.getUsers())
-                .extracting(User::getId)
+        assertThat(participantIds(testSession.getId()))
                 .containsExactlyInAnyOrder(testUser.getId(), testUser2.getId());
     }
 
+    @Test
+    @DisplayName("Should reject participation when session is full")
+    void shouldRejectParticipationWhenSessionIsFull() {
+        testSession.setCapacity(1);
+        sessionRepository.save(testSession);
+
+        sessionService.participate(testSession.getId(), testUser.getId());
+
+        assertThrows(ConflictException.class, () -> {
+            sessionService.participate(testSession.getId(), testUser2.getId());
+        });
+        assertThat(participantIds(testSession.getId())).containsExactly(testUser.getId());
+    }
+
+    @Test
+    @DisplayName("Should free a seat when a participant leaves")
+    void shouldFreeSeatWhenParticipantLeaves() {
+        testSession.setCapacity(1);
+        sessionRepository.save(testSession);
+
+        sessionService.participate(testSession.getId(), testUser.getId());
+        sessionService.noLongerParticipate(testSession.getId(), testUser.getId());
+        sessionService.participate(testSession.getId(), testUser2.getId());
+
+        assertThat(participantIds(testSession.getId())).containsExactly(testUser2.getId());
+        assertThat(sessionRepository.findById(testSession.getId()).get().getParticipantCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should never overbook a capacity-limited session under concurrent participation")
+    void shouldNotOverbookUnderConcurrentParticipation() throws Exception {
+        int capacity = 5;
+        int contenders = 40;
+
+        Session limitedSession = sessionRepository.save(Session.builder()
+                .name("Yoga Rush")
+                .description("Limited session")
+                .date(new Date())
+                .teacher(testTeacher)
+                .capacity(capacity)
+                .users(new ArrayList<>())
+                .build());
+
+        List<Long> contenderIds = new ArrayList<>();
+        for (int i = 0; i < contenders; i++) {
+            contenderIds.add(userRepository.save(User.builder()
+                    .email("contender" + i + "@test.fr")
+                    .firstName("Jean")
+                    .lastName("Dupont")
+                    .password("password123")
+                    .admin(false)
+                    .build()).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> attempts = new ArrayList<>();
+
+        for (Long contenderId : contenderIds) {
+            attempts.add(executor.submit(() -> {
+                start.await();
+                try {
+                    sessionService.participate(limitedSession.getId(), contenderId);
+                    accepted.incrementAndGet();
+                } catch (ConflictException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> attempt : attempts) {
+                attempt.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(accepted.get()).isEqualTo(capacity);
+        assertThat(rejected.get()).isEqualTo(contenders - capacity);
+        assertThat(participantIds(limitedSession.getId())).hasSize(capacity);
+        assertThat(sessionRepository.findById(limitedSession.getId()).get().getParticipantCount()).isEqualTo(capacity);
+    }
+
+    @Test
+    @DisplayName("Should not queue a user behind a leave that is freeing a seat")
+    void shouldNotQueueBehindConcurrentLeave() throws Exception {
+        testSession.setCapacity(1);
+        sessionRepository.save(testSession);
+        sessionService.participate(testSession.getId(), testUser.getId());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The leave holds the session row until it commits, so the join can only see the freed seat
+            Future<?> join = new TransactionTemplate(transactionManager).execute(status -> {
+                sessionService.noLongerParticipate(testSession.getId(), testUser.getId());
+                Future<?> pending = executor.submit(() -> {
+                    sessionService.joinWaitlist(testSession.getId(), testUser2.getId());
+                    return null;
+                });
+                assertThrows(TimeoutException.class, () -> pending.get(200, TimeUnit.MILLISECONDS));
+                return pending;
+            });
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> join.get(10, TimeUnit.SECONDS));
+            assertThat(failure.getCause()).isInstanceOf(BadRequestException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(sessionService.getWaitlist(testSession.getId())).isEmpty();
+        sessionService.participate(testSession.getId(), testUser2.getId());
+        assertThat(participantIds(testSession.getId())).containsExactly(testUser2.getId());
+    }
+
+    @Test
+    @DisplayName("Should promote a user who joined the waitlist while a participant was leaving")
+    void shouldPromoteWaitlistJoinedDuringLeave() throws Exception {
+        testSession.setCapacity(1);
+        sessionRepository.save(testSession);
+        sessionService.participate(testSession.getId(), testUser.getId());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The join holds the session row, so the leave only promotes once the entry is committed
+            Future<?> leave = new TransactionTemplate(transactionManager).execute(status -> {
+                sessionService.joinWaitlist(testSession.getId(), testUser2.getId());
+                Future<?> pending = executor.submit(() -> {
+                    sessionService.noLongerParticipate(testSession.getId(), testUser.getId());
+                    return null;
+                });
+                assertThrows(TimeoutException.class, () -> pending.get(200, TimeUnit.MILLISECONDS));
+                return pending;
+            });
+
+            leave.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(participantIds(testSession.getId())).containsExactly(testUser2.getId());
+        assertThat(sessionService.getWaitlist(testSession.getId())).isEmpty();
+    }
+
     @Test
     @DisplayName("Should throw NotFoundException when session does not exist for participation")
     void shouldThrowNotFoundExceptionWhenSessionNotExistsForParticipation() {
@@ -237,9 +425,7 @@ public class SessionServiceITTest {
 
         sessionService.noLongerParticipate(testSession.getId(), testUser.getId());
 
-        Session updatedSession = sessionRepository.findById(testSession.getId()).orElse(null);
-        assertThat(updatedSession).isNotNull();
-        assertThat(updatedSession.getUsers()).isEmpty();
+        assertThat(participantIds(testSession.getId())).isEmpty();
     }
 
     @Test
@@ -250,10 +436,7 @@ public class SessionServiceITTest {
 
         sessionService.noLongerParticipate(testSession.getId(), testUser.getId());
 
-        Session updatedSession = sessionRepository.findById(testSession.getId()).orElse(null);
-        assertThat(updatedSession).isNotNull();
-        assertThat(updatedSession.getUsers()).hasSize(1);
-        assertThat(updatedSession.getUsers().get(0).getId()).isEqualTo(testUser2.getId());
+        assertThat(participantIds(testSession.getId())).containsExactly(testUser2.getId());
     }
 
     @Test
@@ -271,4 +454,10 @@ public class SessionServiceITTest {
             sessionService.noLongerParticipate(testSession.getId(), testUser.getId());
         });
     }
-}
\ No newline at end of file
+
+    private List<Long> participantIds(Long sessionId) {
+        return sessionRepository.findParticipantIds(List.of(sessionId)).stream()
+                .map(row -> ((Number) row[1]).longValue())
+                .collect(Collectors.toList());
+    }
+}
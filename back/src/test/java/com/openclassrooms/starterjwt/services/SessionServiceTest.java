@@ -1,22 +1,37 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.BulkRejectedException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.payload.request.SessionPatchRequest;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,7 +48,12 @@ public class SessionServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private SessionMapper sessionMapper;
+
     private SessionService sessionService;
 
     @InjectMocks
@@ -45,10 +65,12 @@ public class SessionServiceTest {
 
     @BeforeEach
     void setUp() {
+        sessionService = new SessionService(sessionRepository, userRepository, waitlistRepository, sessionMapper, true, 60000L);
+
         testSession = new Session();
         testSession.setId(1L);
         testSession.setName("Yoga Friday");
-        testSession.setDate(new java.util.Date());
+        testSession.setDate(new Date());
         testSession.setDescription("Friday session");
         testSession.setUsers(new ArrayList<>());
 
@@ -66,7 +88,7 @@ public class SessionServiceTest {
         testSession2 = new Session();
         testSession2.setId(2L);
         testSession2.setName("Pilates Monday");
-        testSession2.setDate(new java.util.Date());
+        testSession2.setDate(new Date());
         testSession2.setDescription("Monday session");
         testSession2.setUsers(users);
     }
@@ -90,9 +112,9 @@ public class SessionServiceTest {
     @Test
     @DisplayName("Should find all sessions")
     void shouldFindAllSessions() {
-        when(sessionRepository.findAll()).thenReturn(java.util.List.of(testSession, testSession2));
+        when(sessionRepository.findAll()).thenReturn(List.of(testSession, testSession2));
 
-        java.util.List<Session> result = sessionService.findAll();
+        List<Session> result = sessionService.findAll();
 
         assertThat(result).isNotNull();
         assertThat(result.size()).isEqualTo(2);
@@ -110,6 +132,49 @@ public class SessionServiceTest {
         verify(sessionRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Should find a page of sessions after a cursor")
+    void shouldFindSessionPageAfterCursor() {
+        SessionCursor cursor = SessionCursor.of(testSession);
+        when(sessionRepository.findPage(null, null, 3L, testSession.getDate(), 1L, 11))
+                .thenReturn(List.of(testSession2));
+
+        List<Session> result = sessionService.findPage(cursor, null, null, 3L, 11);
+
+        assertThat(result).containsExactly(testSession2);
+        verify(sessionRepository, times(1)).findPage(null, null, 3L, testSession.getDate(), 1L, 11);
+    }
+
+    @Test
+    @DisplayName("Should read a user's upcoming sessions from now, or from a future cursor")
+    void shouldFindUpcomingSessionsOfParticipant() {
+        Date future = new Date(System.currentTimeMillis() + 3_600_000L);
+        SessionCursor pastCursor = new SessionCursor(new Date(0L), 7L);
+        SessionCursor futureCursor = new SessionCursor(future, 7L);
+
+        sessionService.findUpcomingByParticipant(2L, pastCursor, PageRequest.of(0, 5));
+        sessionService.findUpcomingByParticipant(2L, futureCursor, PageRequest.of(0, 5));
+
+        ArgumentCaptor<Date> dates = ArgumentCaptor.forClass(Date.class);
+        ArgumentCaptor<Long> ids = ArgumentCaptor.forClass(Long.class);
+        verify(sessionRepository, times(2)).findByParticipant(eq(2L), dates.capture(), ids.capture(), eq(PageRequest.of(0, 5)));
+
+        assertThat(dates.getAllValues().get(0)).isAfter(pastCursor.getDate());
+        assertThat(ids.getAllValues().get(0)).isZero();
+        assertThat(dates.getAllValues().get(1)).isEqualTo(future);
+        assertThat(ids.getAllValues().get(1)).isEqualTo(7L);
+    }
+
+    @Test
+    @DisplayName("Should read participants from the start of the session's key range")
+    void shouldFindParticipantsFromStart() {
+        when(userRepository.findParticipants(1L, 0L, PageRequest.of(0, 21))).thenReturn(List.of(testUser));
+        when(userRepository.findParticipants(1L, 5L, PageRequest.of(0, 21))).thenReturn(List.of());
+
+        assertThat(sessionService.findParticipants(1L, null, 21)).containsExactly(testUser);
+        assertThat(sessionService.findParticipants(1L, 5L, 21)).isEmpty();
+    }
+
     @Test
     @DisplayName("Should return null when trying to find session with invalid id")
     void shouldReturnNullWhenSessionDoesNotExist() {
@@ -135,27 +200,257 @@ public class SessionServiceTest {
         assertThat(result.getDescription()).isEqualTo("Friday session");
         assertThat(result.getDate()).isEqualTo(testSession.getDate());
         verify(sessionRepository, times(1)).save(testSession);
+        verify(sessionRepository, times(1)).refreshParticipantCount(1L);
+    }
+
+    @Test
+    @DisplayName("Should not create a session with more participants than its capacity")
+    void shouldRejectOverbookedSessionOnCreate() {
+        User other = new User();
+        other.setId(2L);
+        testSession.setUsers(new ArrayList<>(List.of(testUser, other)));
+        testSession.setCapacity(1);
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> sessionService.create(testSession));
+
+        assertThat(exception.getMessage()).isEqualTo(SessionService.OVERBOOKED);
+        verify(sessionRepository, never()).save(any());
     }
 
     @Test
-    @DisplayName("Should update existing session")
+    @DisplayName("Should create sessions in one call and refresh only the counts that need it")
+    void shouldCreateAllSessions() {
+        testSession2 = new Session();
+        testSession2.setId(2L);
+        testSession2.setName("Pilates Monday");
+        testSession2.setUsers(new ArrayList<>(List.of(testUser)));
+        List<Session> sessions = List.of(testSession, testSession2);
+
+        when(sessionRepository.saveAll(sessions)).thenReturn(sessions);
+
+        List<Session> result = sessionService.createAll(sessions);
+
+        assertThat(result).containsExactly(testSession, testSession2);
+        verify(sessionRepository).refreshParticipantCounts(List.of(2L));
+        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository, never()).refreshParticipantCount(any());
+    }
+
+    @Test
+    @DisplayName("Should update existing session with a single conditional update")
     void shouldUpdateExistingSession() {
         Long sessionId = 1L;
         Session updatedSession = new Session();
         updatedSession.setName("Updated Yoga Friday");
-        updatedSession.setDate(new java.util.Date());
-        updatedSession.setDescription("Updated Friday session");    
+        updatedSession.setDate(new Date());
+        updatedSession.setDescription("Updated Friday session");
+        updatedSession.setVersion(2L);
 
-        when(sessionRepository.save(updatedSession)).thenReturn(updatedSession);
+        when(sessionRepository.updateDetails(eq(sessionId), eq(2L), eq("Updated Yoga Friday"), eq(updatedSession.getDate()),
+                eq("Updated Friday session"), isNull(), isNull(), any())).thenReturn(1);
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
 
         Session result = sessionService.update(sessionId, updatedSession);
 
-        assertThat(result).isNotNull();
-        assertThat(result.getId()).isEqualTo(sessionId);
-        assertThat(result.getName()).isEqualTo("Updated Yoga Friday");
-        assertThat(result.getDescription()).isEqualTo("Updated Friday session");
-        assertThat(result.getDate()).isEqualTo(updatedSession.getDate());
-        verify(sessionRepository, times(1)).save(updatedSession);
+        assertThat(result).isSameAs(testSession);
+        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository, never()).refreshParticipantCount(any());
+    }
+
+    @Test
+    @DisplayName("Should reject an update carrying a stale version")
+    void shouldRejectStaleUpdate() {
+        testSession.setVersion(1L);
+
+        when(sessionRepository.updateDetails(eq(1L), eq(1L), any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> sessionService.update(1L, testSession));
+        assertThat(exception.getMessage()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should reject an update lowering the capacity below the number of participants")
+    void shouldRejectUpdateBelowParticipantCount() {
+        Session current = new Session();
+        current.setId(1L);
+        current.setCapacity(10);
+        current.setParticipantCount(5);
+        Session updatedSession = new Session();
+        updatedSession.setName("Yoga Friday");
+        updatedSession.setCapacity(3);
+
+        when(sessionRepository.updateDetails(eq(1L), isNull(), any(), any(), any(), eq(3), any(), any())).thenReturn(0);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(current));
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> sessionService.update(1L, updatedSession));
+        assertThat(exception.getMessage()).contains("capacity");
+    }
+
+    @Test
+    @DisplayName("Should throw NotFoundException when updating a missing session")
+    void shouldThrowWhenUpdatingMissingSession() {
+        when(sessionRepository.updateDetails(eq(99L), any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(sessionRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> sessionService.update(99L, testSession));
+    }
+
+    @Test
+    @DisplayName("Should update every session of a bulk request and return them in request order")
+    void shouldUpdateAll() {
+        Session first = new Session();
+        first.setId(2L);
+        first.setName("Pilates");
+        Session second = new Session();
+        second.setId(1L);
+        second.setName("Yoga");
+
+        when(sessionRepository.updateDetails(eq(2L), any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(sessionRepository.updateDetails(eq(1L), any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(sessionRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(testSession, testSession2));
+
+        List<Session> result = sessionService.updateAll(List.of(first, second));
+
+        assertThat(result).containsExactly(testSession2, testSession);
+        verify(waitlistRepository).findFirstBySessionIdOrderByIdAsc(1L);
+        verify(waitlistRepository).findFirstBySessionIdOrderByIdAsc(2L);
+    }
+
+    @Test
+    @DisplayName("Should reject a bulk update with the reason of every refused item")
+    void shouldRejectBulkUpdateWithReasons() {
+        Session stale = new Session();
+        stale.setId(1L);
+        stale.setVersion(0L);
+        Session missing = new Session();
+        missing.setId(99L);
+        Session fine = new Session();
+        fine.setId(2L);
+
+        when(sessionRepository.updateDetails(eq(1L), any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(sessionRepository.updateDetails(eq(99L), any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(sessionRepository.updateDetails(eq(2L), any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+        when(sessionRepository.findById(99L)).thenReturn(Optional.empty());
+
+        BulkRejectedException exception = assertThrows(BulkRejectedException.class,
+                () -> sessionService.updateAll(List.of(stale, missing, fine)));
+
+        assertThat(exception.getReasons()).containsOnlyKeys(0, 1);
+        assertThat(exception.getReasons().get(0)).isEqualTo("version is not the current one");
+        assertThat(exception.getReasons().get(1)).isEqualTo("id unknown session 99");
+        verify(waitlistRepository, never()).findFirstBySessionIdOrderByIdAsc(any());
+    }
+
+    @Test
+    @DisplayName("Should patch only the supplied fields")
+    void shouldPatchSuppliedFields() {
+        SessionPatchRequest request = new SessionPatchRequest();
+        request.setDescription("Nouvelle description");
+        request.setTeacher_id(2L);
+        request.setVersion(3L);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("description", "Nouvelle description");
+        expected.put("teacher", 2L);
+
+        when(sessionRepository.updateFields(1L, 3L, expected)).thenReturn(1);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        Session result = sessionService.patch(1L, request);
+
+        assertThat(result).isSameAs(testSession);
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should not issue an update for an empty patch")
+    void shouldSkipEmptyPatch() {
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        Session result = sessionService.patch(1L, new SessionPatchRequest());
+
+        assertThat(result).isSameAs(testSession);
+        verify(sessionRepository, never()).updateFields(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject a patch carrying a stale version")
+    void shouldRejectStalePatch() {
+        SessionPatchRequest request = new SessionPatchRequest();
+        request.setName("Yoga");
+        request.setVersion(1L);
+
+        when(sessionRepository.updateFields(eq(1L), eq(1L), any())).thenReturn(0);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        assertThrows(ConflictException.class, () -> sessionService.patch(1L, request));
+    }
+
+    @Test
+    @DisplayName("Should reject a patch lowering the capacity below the number of participants")
+    void shouldRejectPatchBelowParticipantCount() {
+        SessionPatchRequest request = new SessionPatchRequest();
+        request.setCapacity(3);
+        testSession.setParticipantCount(5);
+
+        when(sessionRepository.updateFields(eq(1L), isNull(), any())).thenReturn(0);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> sessionService.patch(1L, request));
+        assertThat(exception.getMessage()).contains("capacity");
+        verify(waitlistRepository, never()).findFirstBySessionIdOrderByIdAsc(any());
+    }
+
+    @Test
+    @DisplayName("Should promote waitlisted users into the seats a capacity increase frees")
+    void shouldPromoteWaitlistOnCapacityIncrease() {
+        SessionPatchRequest request = new SessionPatchRequest();
+        request.setCapacity(4);
+        WaitlistEntry first = WaitlistEntry.builder().id(1L).sessionId(1L).userId(7L).build();
+        WaitlistEntry second = WaitlistEntry.builder().id(2L).sessionId(1L).userId(8L).build();
+
+        when(sessionRepository.updateFields(eq(1L), isNull(), any())).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(first), Optional.of(second));
+        when(sessionRepository.countParticipant(eq(1L), any())).thenReturn(0L);
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1, 0);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        sessionService.patch(1L, request);
+
+        verify(sessionRepository).addParticipant(1L, 7L);
+        verify(sessionRepository, never()).addParticipant(1L, 8L);
+        verify(waitlistRepository).delete(first);
+        verify(waitlistRepository, never()).delete(second);
+    }
+
+    @Test
+    @DisplayName("Should promote waitlisted users when an update lifts the capacity")
+    void shouldPromoteWaitlistOnUpdate() {
+        WaitlistEntry entry = WaitlistEntry.builder().id(1L).sessionId(1L).userId(7L).build();
+
+        when(sessionRepository.updateDetails(eq(1L), any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(entry), Optional.empty());
+        when(sessionRepository.countParticipant(1L, 7L)).thenReturn(0L);
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        sessionService.update(1L, testSession);
+
+        verify(sessionRepository).addParticipant(1L, 7L);
+        verify(waitlistRepository).delete(entry);
+    }
+
+    @Test
+    @DisplayName("Should reject a patch pointing to an unknown teacher")
+    void shouldRejectPatchWithUnknownTeacher() {
+        SessionPatchRequest request = new SessionPatchRequest();
+        request.setTeacher_id(99L);
+
+        when(sessionRepository.updateFields(eq(1L), isNull(), any())).thenThrow(new DataIntegrityViolationException("fk"));
+
+        assertThrows(BadRequestException.class, () -> sessionService.patch(1L, request));
     }
 
     @Test
@@ -170,35 +465,36 @@ public class SessionServiceTest {
     }
 
     @Test
-    @DisplayName("Should add user to list of participants when user is not already participating")
+    @DisplayName("Should insert a single participation row when user is not already participating")
     void shouldAddUserToParticipantsWhenNotAlreadyParticipating() {
         Long sessionId = 1L;
         Long userId = 1L;
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(sessionRepository.save(testSession)).thenReturn(testSession);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(sessionRepository.reserveSeat(sessionId)).thenReturn(1);
+        when(sessionRepository.addParticipant(sessionId, userId)).thenReturn(1);
 
         sessionService.participate(sessionId, userId);
 
-        assertThat(testSession.getUsers()).contains(testUser);
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(userRepository, times(1)).findById(userId);
-        verify(sessionRepository, times(1)).save(testSession);
+        verify(sessionRepository, times(1)).reserveSeat(sessionId);
+        verify(sessionRepository, times(1)).addParticipant(sessionId, userId);
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionRepository, never()).save(any());
     }
 
     @Test
-    @DisplayName("Should delete user from list of participants when user is already participating")
+    @DisplayName("Should delete a single participation row when user is already participating")
     void shouldDeleteUserFromParticipantsWhenAlreadyParticipating() {
         Long sessionId = 2L;
         Long userId = 1L;
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession2));
-        when(sessionRepository.save(testSession2)).thenReturn(testSession2);
+        when(sessionRepository.existsById(sessionId)).thenReturn(true);
+        when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(1);
 
         sessionService.noLongerParticipate(sessionId, userId);
 
-        assertThat(testSession2.getUsers()).doesNotContain(testUser);
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(sessionRepository, times(1)).save(testSession2);
+        verify(sessionRepository, times(1)).removeParticipant(sessionId, userId);
+        verify(sessionRepository, times(1)).releaseSeat(sessionId);
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionRepository, never()).save(any());
     }
 
     @Test
@@ -206,12 +502,11 @@ public class SessionServiceTest {
     void shouldReturnNotFoundExceptionWhenUserDoesNotExistWhileParticipating() {
         Long sessionId = 1L;
         Long userId = 1L;
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(false);
 
         assertThrows(NotFoundException.class, () -> sessionService.participate(sessionId, userId));
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(userRepository, times(1)).findById(userId);
+        verify(sessionRepository, never()).reserveSeat(any());
+        verify(sessionRepository, never()).addParticipant(any(), any());
     }
 
     @Test
@@ -219,12 +514,26 @@ public class SessionServiceTest {
     void shouldReturnNotFoundExceptionWhenSessionDoesNotExistWhileParticipating() {
         Long sessionId = 1L;
         Long userId = 1L;
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(sessionRepository.reserveSeat(sessionId)).thenReturn(0);
+        when(sessionRepository.existsById(sessionId)).thenReturn(false);
 
         assertThrows(NotFoundException.class, () -> sessionService.participate(sessionId, userId));
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(userRepository, times(1)).findById(userId);
+        verify(sessionRepository, times(1)).existsById(sessionId);
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should throw conflict exception when session is full")
+    void shouldReturnConflictExceptionWhenSessionIsFull() {
+        Long sessionId = 1L;
+        Long userId = 1L;
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(sessionRepository.reserveSeat(sessionId)).thenReturn(0);
+        when(sessionRepository.existsById(sessionId)).thenReturn(true);
+
+        assertThrows(ConflictException.class, () -> sessionService.participate(sessionId, userId));
+        verify(sessionRepository, never()).addParticipant(any(), any());
     }
 
     @Test
@@ -232,10 +541,10 @@ public class SessionServiceTest {
     void shouldReturnNotFoundExceptionWhenSessionDoesNotExistWhileUnparticipating() {
         Long sessionId = 1L;
         Long userId = 1L;
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
+        when(sessionRepository.existsById(sessionId)).thenReturn(false);
 
         assertThrows(NotFoundException.class, () -> sessionService.noLongerParticipate(sessionId, userId));
-        verify(sessionRepository, times(1)).findById(sessionId);
+        verify(sessionRepository, never()).removeParticipant(any(), any());
     }
 
     @Test
@@ -243,12 +552,12 @@ public class SessionServiceTest {
     void shouldReturnBadRequestExceptionWhenUserIsAlreadyParticipating() {
         Long sessionId = 2L;
         Long userId = 1L;
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession2));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(sessionRepository.reserveSeat(sessionId)).thenReturn(1);
+        when(sessionRepository.addParticipant(sessionId, userId)).thenThrow(new DataIntegrityViolationException("duplicate"));
+
         assertThrows(BadRequestException.class, () -> sessionService.participate(sessionId, userId));
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(userRepository, times(1)).findById(userId);
+        verify(sessionRepository, times(1)).addParticipant(sessionId, userId);
     }
 
     @Test
@@ -256,9 +565,286 @@ public class SessionServiceTest {
     void shouldReturnBadRequestExceptionWhenUserIsAlreadyNotParticipating() {
         Long sessionId = 1L;
         Long userId = 1L;
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
-        
+        when(sessionRepository.existsById(sessionId)).thenReturn(true);
+        when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(0);
+
         assertThrows(BadRequestException.class, () -> sessionService.noLongerParticipate(sessionId, userId));
-        verify(sessionRepository, times(1)).findById(sessionId);
+        verify(sessionRepository, times(1)).removeParticipant(sessionId, userId);
+        verify(sessionRepository, never()).releaseSeat(any());
+    }
+
+    @Test
+    @DisplayName("Should promote the head of the waitlist when a participant leaves")
+    void shouldPromoteWaitlistHeadWhenParticipantLeaves() {
+        Long sessionId = 1L;
+        WaitlistEntry head = WaitlistEntry.builder().id(10L).sessionId(sessionId).userId(3L).build();
+        when(sessionRepository.existsById(sessionId)).thenReturn(true);
+        when(sessionRepository.removeParticipant(sessionId, 1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId)).thenReturn(Optional.of(head), Optional.empty());
+        when(sessionRepository.countParticipant(sessionId, 3L)).thenReturn(0L);
+        when(sessionRepository.reserveSeat(sessionId)).thenReturn(1);
+
+        sessionService.noLongerParticipate(sessionId, 1L);
+
+        verify(sessionRepository, times(1)).releaseSeat(sessionId);
+        verify(sessionRepository, times(1)).addParticipant(sessionId, 3L);
+        verify(waitlistRepository, times(1)).delete(head);
+    }
+
+    @Test
+    @DisplayName("Should drop a stale waitlist head that already participates and promote the next entry")
+    void shouldSkipStaleWaitlistHeadWhenParticipantLeaves() {
+        Long sessionId = 1L;
+        WaitlistEntry stale = WaitlistEntry.builder().id(10L).sessionId(sessionId).userId(3L).build();
+        WaitlistEntry next = WaitlistEntry.builder().id(11L).sessionId(sessionId).userId(4L).build();
+        when(sessionRepository.existsById(sessionId)).thenReturn(true);
+        when(sessionRepository.removeParticipant(sessionId, 1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId))
+                .thenReturn(Optional.of(stale), Optional.of(next), Optional.empty());
+        when(sessionRepository.countParticipant(sessionId, 3L)).thenReturn(1L);
+        when(sessionRepository.countParticipant(sessionId, 4L)).thenReturn(0L);
+        when(sessionRepository.reserveSeat(sessionId)).thenReturn(1);
+
+        sessionService.noLongerParticipate(sessionId, 1L);
+
+        verify(sessionRepository, never()).addParticipant(sessionId, 3L);
+        verify(sessionRepository, times(1)).addParticipant(sessionId, 4L);
+        verify(sessionRepository, times(1)).reserveSeat(sessionId);
+        verify(waitlistRepository, times(1)).delete(stale);
+        verify(waitlistRepository, times(1)).delete(next);
+    }
+
+    @Test
+    @DisplayName("Should leave the waitlist untouched when the freed seat is taken concurrently")
+    void shouldNotPromoteWhenSeatIsTakenConcurrently() {
+        Long sessionId = 1L;
+        WaitlistEntry head = WaitlistEntry.builder().id(10L).sessionId(sessionId).userId(3L).build();
+        when(sessionRepository.existsById(sessionId)).thenReturn(true);
+        when(sessionRepository.removeParticipant(sessionId, 1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId)).thenReturn(Optional.of(head));
+        when(sessionRepository.countParticipant(sessionId, 3L)).thenReturn(0L);
+        when(sessionRepository.reserveSeat(sessionId)).thenReturn(0);
+
+        sessionService.noLongerParticipate(sessionId, 1L);
+
+        verify(sessionRepository, never()).addParticipant(any(), any());
+        verify(waitlistRepository, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Should drop the user from the waitlist once participating")
+    void shouldRemoveWaitlistEntryWhenParticipating() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+
+        sessionService.participate(1L, 1L);
+
+        verify(waitlistRepository, times(1)).removeEntry(1L, 1L);
+    }
+
+    @Test
+    @DisplayName("Should return waitlisted user ids in queue order")
+    void shouldReturnWaitlistInOrder() {
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(Arrays.asList(
+                WaitlistEntry.builder().id(1L).sessionId(1L).userId(5L).build(),
+                WaitlistEntry.builder().id(2L).sessionId(1L).userId(2L).build()));
+
+        assertThat(sessionService.getWaitlist(1L)).containsExactly(5L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should add the user to the waitlist of a full session")
+    void shouldJoinWaitlistWhenSessionIsFull() {
+        testSession.setCapacity(1);
+        testSession.setParticipantCount(1);
+        when(sessionRepository.findForUpdateById(1L)).thenReturn(Optional.of(testSession));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+
+        sessionService.joinWaitlist(1L, 1L);
+
+        verify(waitlistRepository, times(1)).saveAndFlush(argThat(entry ->
+                entry.getSessionId().equals(1L) && entry.getUserId().equals(1L)));
+    }
+
+    @Test
+    @DisplayName("Should refuse the waitlist while seats are still available")
+    void shouldRejectWaitlistWhenSeatsAreAvailable() {
+        testSession.setCapacity(2);
+        testSession.setParticipantCount(1);
+        when(sessionRepository.findForUpdateById(1L)).thenReturn(Optional.of(testSession));
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> sessionService.joinWaitlist(1L, 1L));
+        verify(waitlistRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Should refuse the waitlist to a current participant")
+    void shouldRejectWaitlistForParticipant() {
+        testSession.setCapacity(1);
+        testSession.setParticipantCount(1);
+        when(sessionRepository.findForUpdateById(1L)).thenReturn(Optional.of(testSession));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(1L);
+
+        assertThrows(BadRequestException.class, () -> sessionService.joinWaitlist(1L, 1L));
+        verify(waitlistRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Should throw bad request exception when leaving a waitlist the user is not on")
+    void shouldRejectLeavingWaitlistWhenNotQueued() {
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(waitlistRepository.removeEntry(1L, 1L)).thenReturn(0);
+
+        assertThrows(BadRequestException.class, () -> sessionService.leaveWaitlist(1L, 1L));
+    }
+
+    @Test
+    @DisplayName("Should build the catalogue once and reload only the sessions written since")
+    void shouldServeCatalogueUntilWrite() {
+        List<Session> sessions = List.of(testSession, testSession2);
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        SessionDto dto2 = new SessionDto();
+        dto2.setId(2L);
+        SessionDto updatedDto = new SessionDto();
+        updatedDto.setId(1L);
+        updatedDto.setUsers(List.of(5L));
+        when(sessionRepository.findAll()).thenReturn(sessions);
+        when(sessionMapper.toDto(sessions)).thenReturn(List.of(dto, dto2));
+
+        SessionCatalogue first = sessionService.getCatalogue();
+        SessionCatalogue second = sessionService.getCatalogue();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getSessions()).containsExactly(dto, dto2);
+        assertThat(first.findById(1L)).isEqualTo(dto);
+        assertThat(first.findById(3L)).isNull();
+        verify(sessionRepository, times(1)).findAll();
+
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.findAllById(List.of(1L))).thenReturn(List.of(testSession));
+        when(sessionMapper.toDto(List.of(testSession))).thenReturn(List.of(updatedDto));
+        sessionService.noLongerParticipate(1L, 1L);
+
+        SessionCatalogue rebuilt = sessionService.getCatalogue();
+        assertThat(rebuilt).isNotSameAs(first);
+        assertThat(rebuilt.getVersion()).isGreaterThan(first.getVersion());
+        assertThat(rebuilt.findById(1L).getUsers()).containsExactly(5L);
+        assertThat(rebuilt.findById(2L)).isEqualTo(dto2);
+        verify(sessionRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should drop deleted sessions from the catalogue")
+    void shouldDropDeletedSessionFromCatalogue() {
+        List<Session> sessions = List.of(testSession, testSession2);
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        SessionDto dto2 = new SessionDto();
+        dto2.setId(2L);
+        when(sessionRepository.findAll()).thenReturn(sessions);
+        when(sessionMapper.toDto(sessions)).thenReturn(List.of(dto, dto2));
+        when(sessionRepository.findAllById(List.of(2L))).thenReturn(List.of());
+        when(sessionMapper.toDto(List.<Session>of())).thenReturn(List.of());
+
+        sessionService.getCatalogue();
+        sessionService.delete(2L);
+        SessionCatalogue catalogue = sessionService.getCatalogue();
+
+        assertThat(catalogue.getSessions()).containsExactly(dto);
+        assertThat(catalogue.findById(2L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should move the catalogue's last modification time forward on delete")
+    void shouldMoveLastModifiedForwardOnDelete() throws InterruptedException {
+        List<Session> sessions = List.of(testSession, testSession2);
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        dto.setUpdatedAt(LocalDateTime.now().minusDays(1));
+        SessionDto dto2 = new SessionDto();
+        dto2.setId(2L);
+        dto2.setUpdatedAt(LocalDateTime.now().minusDays(1));
+        when(sessionRepository.findAll()).thenReturn(sessions);
+        when(sessionMapper.toDto(sessions)).thenReturn(List.of(dto, dto2));
+        when(sessionRepository.findAllById(List.of(2L))).thenReturn(List.of());
+        when(sessionMapper.toDto(List.<Session>of())).thenReturn(List.of());
+
+        LocalDateTime before = sessionService.getCatalogue().getLastModified();
+        Thread.sleep(10);
+        sessionService.delete(2L);
+        SessionCatalogue catalogue = sessionService.getCatalogue();
+
+        assertThat(catalogue.getLastModified()).isAfter(before);
+        assertThat(catalogue.getLastModified()).isAfter(dto.getUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Should reload the whole catalogue once it is older than its max age")
+    void shouldReloadExpiredCatalogue() throws InterruptedException {
+        SessionService shortLived = new SessionService(sessionRepository, userRepository, waitlistRepository, sessionMapper, true, 50L);
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        when(sessionRepository.findAll()).thenReturn(List.of(testSession));
+        when(sessionMapper.toDto(anyList())).thenReturn(List.of(dto));
+
+        SessionCatalogue first = shortLived.getCatalogue();
+        Thread.sleep(100);
+        SessionCatalogue reloaded = shortLived.getCatalogue();
+
+        assertThat(reloaded).isNotSameAs(first);
+        verify(sessionRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should keep copies of the mapped sessions in the catalogue")
+    void shouldCopyMappedSessionsIntoCatalogue() {
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        dto.setUsers(new ArrayList<>(List.of(5L)));
+        dto.setDate(new Date(0L));
+        when(sessionRepository.findAll()).thenReturn(List.of(testSession));
+        when(sessionMapper.toDto(anyList())).thenReturn(List.of(dto));
+
+        SessionDto shared = sessionService.getCatalogue().findById(1L);
+        dto.getUsers().add(6L);
+
+        dto.getDate().setTime(1000L);
+
+        assertThat(shared.getUsers()).containsExactly(5L);
+        assertThat(shared.getDate()).isEqualTo(new Date(0L));
+    }
+
+    @Test
+    @DisplayName("Should rebuild the catalogue on every read when it is disabled")
+    void shouldRebuildCatalogueWhenDisabled() {
+        SessionService uncached = new SessionService(sessionRepository, userRepository, waitlistRepository, sessionMapper, false, 60000L);
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        when(sessionRepository.findAll()).thenReturn(List.of(testSession));
+        when(sessionMapper.toDto(anyList())).thenReturn(List.of(dto));
+
+        uncached.getCatalogue();
+        uncached.getCatalogue();
+
+        verify(sessionRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should look a single session up directly when the catalogue is disabled")
+    void shouldFindSingleSessionWhenCatalogueDisabled() {
+        SessionService uncached = new SessionService(sessionRepository, userRepository, waitlistRepository, sessionMapper, false, 60000L);
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+        when(sessionMapper.toDto(testSession)).thenReturn(dto);
+
+        assertThat(uncached.getDtoById(1L)).isSameAs(dto);
+        verify(sessionRepository, never()).findAll();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs with the test profile's one second refresh interval.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@DisplayName("TeacherService cache Integration Tests")
+public class TeacherServiceCacheITTest {
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @BeforeEach
+    void setUp() {
+        // cleanup.sql bypasses the service, so the snapshot of a previous test may still be held
+        teacherService.invalidate();
+    }
+
+    @Test
+    @DisplayName("Should serve the snapshot until the refresh interval elapses")
+    void shouldRefreshSnapshotAfterInterval() throws Exception {
+        Teacher first = teacherRepository.save(Teacher.builder().firstName("Pierre").lastName("Martin").build());
+
+        assertThat(teacherService.findAll()).extracting(Teacher::getId).containsExactly(first.getId());
+
+        Teacher second = teacherRepository.save(Teacher.builder().firstName("Marie").lastName("Durand").build());
+        assertThat(teacherService.findAll()).extracting(Teacher::getId).containsExactly(first.getId());
+
+        Thread.sleep(1100);
+
+        assertThat(teacherService.findAll()).extracting(Teacher::getId)
+                .containsExactlyInAnyOrder(first.getId(), second.getId());
+    }
+
+    @Test
+    @DisplayName("Should load a teacher added since the snapshot and reload the snapshot")
+    void shouldReloadSnapshotOnMiss() {
+        assertThat(teacherService.findAll()).isEmpty();
+
+        Teacher teacher = teacherRepository.save(Teacher.builder().firstName("Pierre").lastName("Martin").build());
+
+        assertThat(teacherService.findById(teacher.getId())).isNotNull();
+        assertThat(teacherService.findAll()).extracting(Teacher::getId).containsExactly(teacher.getId());
+    }
+
+    @Test
+    @DisplayName("Should reload the snapshot after an explicit invalidation")
+    void shouldReloadSnapshotAfterInvalidation() {
+        assertThat(teacherService.findAll()).isEmpty();
+
+        Teacher teacher = teacherRepository.save(Teacher.builder().firstName("Pierre").lastName("Martin").build());
+        teacherService.invalidate();
+
+        assertThat(teacherService.findAll()).extracting(Teacher::getId).containsExactly(teacher.getId());
+    }
+}
@@ -6,11 +6,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -21,7 +23,6 @@ public class TeacherServiceTest {
     @Mock
     private TeacherRepository teacherRepository;
 
-    @InjectMocks
     private TeacherService teacherService;
 
     private Teacher testTeacher;
@@ -29,6 +30,8 @@ public class TeacherServiceTest {
 
     @BeforeEach
     void setUp() {
+        teacherService = new TeacherService(teacherRepository, 0L);
+
         testTeacher = new Teacher();
         testTeacher.setId(1L);
         testTeacher.setLastName("Dupont");
@@ -70,9 +73,9 @@ public class TeacherServiceTest {
     @Test
     @DisplayName("Should find all teachers")
     void shouldFindAllTeachers() {
-        when(teacherRepository.findAll()).thenReturn(java.util.List.of(testTeacher, testTeacher2));
+        when(teacherRepository.findAll()).thenReturn(List.of(testTeacher, testTeacher2));
 
-        java.util.List<Teacher> result = teacherService.findAll();
+        List<Teacher> result = teacherService.findAll();
 
         assertThat(result).isNotNull();
         assertThat(result.size()).isEqualTo(2);
@@ -87,4 +90,63 @@ public class TeacherServiceTest {
         
         verify(teacherRepository, times(1)).findAll();
     }
+
+    @Test
+    @DisplayName("Should serve teachers from memory once loaded")
+    void shouldServeTeachersFromSnapshot() {
+        TeacherService cachingService = new TeacherService(teacherRepository, 60000L);
+        when(teacherRepository.findAll()).thenReturn(List.of(testTeacher, testTeacher2));
+
+        assertThat(cachingService.findAll()).containsExactly(testTeacher, testTeacher2);
+        assertThat(cachingService.findAll()).containsExactly(testTeacher, testTeacher2);
+        assertThat(cachingService.findById(2L)).isSameAs(testTeacher2);
+
+        verify(teacherRepository, times(1)).findAll();
+        verify(teacherRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should reload teachers after invalidation")
+    void shouldReloadAfterInvalidation() {
+        TeacherService cachingService = new TeacherService(teacherRepository, 60000L);
+        when(teacherRepository.findAll())
+                .thenReturn(List.of(testTeacher))
+                .thenReturn(List.of(testTeacher, testTeacher2));
+
+        assertThat(cachingService.findAll()).hasSize(1);
+        cachingService.invalidate();
+
+        assertThat(cachingService.findAll()).hasSize(2);
+        verify(teacherRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should fall back to the database for teachers added after the snapshot")
+    void shouldReadThroughOnMiss() {
+        TeacherService cachingService = new TeacherService(teacherRepository, 60000L);
+        when(teacherRepository.findAll())
+                .thenReturn(List.of(testTeacher))
+                .thenReturn(List.of(testTeacher, testTeacher2));
+        when(teacherRepository.findById(2L)).thenReturn(Optional.of(testTeacher2));
+
+        assertThat(cachingService.findById(2L)).isSameAs(testTeacher2);
+        assertThat(cachingService.findById(2L)).isSameAs(testTeacher2);
+
+        verify(teacherRepository, times(1)).findById(2L);
+        verify(teacherRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should resolve several teachers with one query for those missing from the snapshot")
+    void shouldFindAllByIdWithOneQuery() {
+        TeacherService cachingService = new TeacherService(teacherRepository, 60000L);
+        when(teacherRepository.findAll()).thenReturn(List.of(testTeacher));
+        when(teacherRepository.findAllById(Set.of(2L, 3L))).thenReturn(List.of(testTeacher2));
+
+        Map<Long, Teacher> found = cachingService.findAllById(List.of(1L, 2L, 3L));
+
+        assertThat(found).containsOnlyKeys(1L, 2L);
+        assertThat(found.get(1L)).isSameAs(testTeacher);
+        verify(teacherRepository, times(1)).findAllById(any());
+    }
 }
@@ -2,6 +2,8 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationRegistry;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -22,6 +25,12 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @InjectMocks
     private UserService userService;
 
@@ -66,6 +75,18 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findById(userId);
     }
 
+    @Test
+    @DisplayName("Should find users by ids in a single call")
+    void shouldFindUsersByIds() {
+        List<Long> ids = List.of(1L, 2L);
+        when(userRepository.findAllById(ids)).thenReturn(List.of(testUser));
+
+        List<User> result = userService.findAllById(ids);
+
+        assertThat(result).containsExactly(testUser);
+        verify(userRepository, times(1)).findAllById(ids);
+    }
+
     @Test
     @DisplayName("Should delete user when valid id is provided")
     void shouldDeleteUserWhenValidIdProvided() {
@@ -74,6 +95,8 @@ public class UserServiceTest {
         userService.delete(userId);
 
         verify(userRepository, times(1)).deleteById(userId);
+        verify(userDetailsCache, times(1)).evictById(userId);
+        verify(tokenRevocationRegistry, times(1)).revoke(userId);
     }
 }
 
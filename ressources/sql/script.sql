@@ -1,3 +1,5 @@
+-- Initial schema and sample data. The application brings the schema up to date with the
+-- Flyway migrations in back/src/main/resources/db/migration when it starts.
 CREATE TABLE `TEACHERS` (
   `id` INT PRIMARY KEY AUTO_INCREMENT,
   `last_name` VARCHAR(40),
@@ -28,7 +30,7 @@ CREATE TABLE `USERS` (
 );
 
 CREATE TABLE `PARTICIPATE` (
-  `user_id` INT, 
+  `user_id` INT,
   `session_id` INT
 );
 
@@ -43,4 +45,3 @@ VALUES ('Margot', 'DELAHAYE'),
 
 INSERT INTO USERS (first_name, last_name, admin, email, password)
 VALUES ('Admin', 'Admin', true, 'yoga@studio.com', '$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq'); 
-